@@ -0,0 +1,47 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler so both the throughput and the allocation rate are reported
+ * Build with "mvn package" in this module and run with "java -jar target/benchmarks.jar [jmh options]", for example:
+ * java -jar target/benchmarks.jar MarshalBenchmark -p shape=WIDE -rf json -rff marshal.json
+ * The json result files of two releases can be compared to catch regressions
+ */
+public class DefinitionBenchmarkRunner {
+	public static void main(String...args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(commandLine);
+		if (commandLine.getIncludes().isEmpty()) {
+			options.include(MarshalBenchmark.class.getSimpleName());
+			options.include(UnmarshalBenchmark.class.getSimpleName());
+			options.include(ScalingBenchmark.class.getSimpleName());
+		}
+		options.addProfiler(GCProfiler.class);
+		new Runner(options.build()).run();
+	}
+}
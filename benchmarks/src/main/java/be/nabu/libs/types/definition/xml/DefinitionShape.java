@@ -0,0 +1,157 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.DefinedTypeResolver;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+/**
+ * Generates the definitions the benchmarks run against, each shape stresses a different part of the (un)marshaller
+ */
+public enum DefinitionShape {
+	/**
+	 * A single structure with a lot of fields and attributes
+	 */
+	WIDE,
+	/**
+	 * Structures nested in structures
+	 */
+	DEEP,
+	/**
+	 * Fields with a lot of enumeration values
+	 */
+	ENUMERATIONS,
+	/**
+	 * Many structures that reference the same defined type
+	 */
+	REFERENCES,
+	/**
+	 * A long extension chain of defined types
+	 */
+	EXTENSIONS;
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	public String getDefinition() {
+		StringBuilder builder = new StringBuilder();
+		switch (this) {
+			case WIDE:
+				builder.append("<structure name=\"wide\" namespace=\"be.nabu.benchmark\">");
+				for (int i = 0; i < 100; i++) {
+					builder.append("<attribute name=\"attribute" + i + "\" type=\"java.lang.String\"/>");
+				}
+				for (int i = 0; i < 1000; i++) {
+					builder.append("<field name=\"field" + i + "\" type=\"" + (i % 2 == 0 ? "java.lang.String" : "java.lang.Integer") + "\" minOccurs=\"0\" maxOccurs=\"" + (i % 3 == 0 ? "unbounded" : "1") + "\"/>");
+				}
+				builder.append("</structure>");
+			break;
+			case DEEP:
+				for (int i = 0; i < 200; i++) {
+					builder.append("<structure name=\"level" + i + "\"><field name=\"value" + i + "\" type=\"java.lang.String\"/>");
+				}
+				for (int i = 0; i < 200; i++) {
+					builder.append("</structure>");
+				}
+			break;
+			case ENUMERATIONS:
+				builder.append("<structure name=\"enumerations\">");
+				for (int i = 0; i < 100; i++) {
+					builder.append("<field name=\"code" + i + "\" type=\"java.lang.String\">");
+					for (int j = 0; j < 50; j++) {
+						builder.append("<enumeration>VALUE_" + j + "</enumeration>");
+					}
+					builder.append("</field>");
+				}
+				builder.append("</structure>");
+			break;
+			case REFERENCES:
+				builder.append("<structure name=\"references\">");
+				for (int i = 0; i < 200; i++) {
+					builder.append("<structure name=\"address" + i + "\" definition=\"benchmark.address\" minOccurs=\"0\"/>");
+				}
+				builder.append("</structure>");
+			break;
+			case EXTENSIONS:
+				builder.append("<structure name=\"extension\" superType=\"benchmark.level9\">");
+				appendFields(builder, "own", 20);
+				builder.append("</structure>");
+			break;
+		}
+		return builder.toString();
+	}
+	
+	public byte [] getBytes() {
+		return getDefinition().getBytes(UTF8);
+	}
+	
+	/**
+	 * A resolver that contains all the defined types the shapes can refer to
+	 */
+	public static DefinedTypeResolver newResolver() throws IOException, ParseException {
+		final Map<String, DefinedType> types = new HashMap<String, DefinedType>();
+		DefinedTypeResolver resolver = new DefinedTypeResolver() {
+			@Override
+			public DefinedType resolve(String id) {
+				return types.get(id);
+			}
+		};
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setTypeResolver(resolver);
+		
+		StringBuilder address = new StringBuilder("<structure name=\"address\">");
+		appendFields(address, "line", 10);
+		types.put("benchmark.address", unmarshal(unmarshaller, "benchmark.address", address.append("</structure>").toString()));
+		
+		for (int i = 0; i < 10; i++) {
+			StringBuilder level = new StringBuilder("<structure name=\"level" + i + "\"" + (i == 0 ? "" : " superType=\"benchmark.level" + (i - 1) + "\"") + ">");
+			appendFields(level, "level" + i + "Field", 20);
+			types.put("benchmark.level" + i, unmarshal(unmarshaller, "benchmark.level" + i, level.append("</structure>").toString()));
+		}
+		return resolver;
+	}
+	
+	private static DefinedStructure unmarshal(XMLDefinitionUnmarshaller unmarshaller, String id, String definition) throws IOException, ParseException {
+		DefinedStructure structure = new DefinedStructure();
+		structure.setId(id);
+		unmarshaller.setIdToUnmarshal(id);
+		unmarshaller.unmarshal(new ByteArrayInputStream(definition.getBytes(UTF8)), structure);
+		return structure;
+	}
+	
+	private static void appendFields(StringBuilder builder, String prefix, int amount) {
+		for (int i = 0; i < amount; i++) {
+			builder.append("<field name=\"" + prefix + i + "\" type=\"java.lang.String\"/>");
+		}
+	}
+	
+	public ComplexType unmarshal(DefinedTypeResolver resolver) throws IOException, ParseException {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setTypeResolver(resolver);
+		return unmarshaller.unmarshal(new ByteArrayInputStream(getBytes()));
+	}
+}
@@ -0,0 +1,105 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.TransformerException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.base.ComplexElementImpl;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshalBenchmark {
+
+	@Param
+	public DefinitionShape shape;
+	
+	@Param({ "true", "false" })
+	public boolean prettyPrint;
+	
+	/**
+	 * Sets both resolveDefinitions and resolveExtensions, only the references and extensions shapes are affected
+	 */
+	@Param({ "false", "true" })
+	public boolean resolve;
+	
+	private ComplexType type;
+	private XMLDefinitionMarshaller marshaller;
+	private Document document;
+	private ByteArrayOutputStream output = new ByteArrayOutputStream();
+	
+	@Setup
+	public void setup() throws IOException, ParseException {
+		type = shape.unmarshal(DefinitionShape.newResolver());
+		marshaller = new XMLDefinitionMarshaller();
+		marshaller.setPrettyPrint(prettyPrint);
+		marshaller.setResolveDefinitions(resolve);
+		marshaller.setResolveExtensions(resolve);
+		document = XMLDefinitionMarshaller.newDocument(true);
+		marshaller.serialize(document, type, new ComplexElementImpl(type, null).getProperties());
+	}
+	
+	@Benchmark
+	public int marshalDocument() throws IOException {
+		output.reset();
+		marshaller.setStreaming(false);
+		marshaller.marshal(output, type);
+		return output.size();
+	}
+	
+	@Benchmark
+	public int marshalStreaming() throws IOException {
+		output.reset();
+		marshaller.setStreaming(true);
+		marshaller.marshal(output, type);
+		return output.size();
+	}
+	
+	/**
+	 * Only the transform and retab of an already serialized document
+	 */
+	@Benchmark
+	public int toStream() throws TransformerException {
+		output.reset();
+		XMLDefinitionMarshaller.toStream(document, output, "UTF-8", true, prettyPrint);
+		return output.size();
+	}
+}
@@ -0,0 +1,112 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.nabu.libs.types.api.ComplexType;
+
+/**
+ * Measures how the time grows with the amount of children in a single structure
+ * Compare the scores of the widths: for 100 times the children a linear implementation takes about 100 times as long, a quadratic one about 10000 times
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScalingBenchmark {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	@Param({ "1000", "100000" })
+	public int width;
+	
+	private byte [] content;
+	private ComplexType type;
+	private XMLDefinitionUnmarshaller unmarshaller;
+	private XMLDefinitionMarshaller marshaller;
+	private ByteArrayOutputStream output = new ByteArrayOutputStream();
+	
+	@Setup
+	public void setup() throws IOException, ParseException {
+		StringBuilder builder = new StringBuilder("<structure name=\"wide\">");
+		for (int i = 0; i < width; i++) {
+			// mix attributes in as they are moved to the top
+			if (i % 10 == 0) {
+				builder.append("<attribute name=\"attribute" + i + "\" type=\"java.lang.String\"/>");
+			}
+			else {
+				builder.append("<field name=\"field" + i + "\" type=\"java.lang.String\"/>");
+			}
+		}
+		builder.append("</structure>");
+		content = builder.toString().getBytes(UTF8);
+		unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setStreaming(true);
+		type = unmarshaller.unmarshal(new ByteArrayInputStream(content));
+		marshaller = new XMLDefinitionMarshaller();
+	}
+	
+	@Benchmark
+	public int marshalDocument() throws IOException {
+		output.reset();
+		marshaller.setStreaming(false);
+		marshaller.marshal(output, type);
+		return output.size();
+	}
+	
+	@Benchmark
+	public int marshalStreaming() throws IOException {
+		output.reset();
+		marshaller.setStreaming(true);
+		marshaller.marshal(output, type);
+		return output.size();
+	}
+	
+	@Benchmark
+	public ComplexType unmarshalDocument() throws IOException, ParseException {
+		unmarshaller.setStreaming(false);
+		return unmarshaller.unmarshal(new ByteArrayInputStream(content));
+	}
+	
+	@Benchmark
+	public ComplexType unmarshalStreaming() throws IOException, ParseException {
+		unmarshaller.setStreaming(true);
+		return unmarshaller.unmarshal(new ByteArrayInputStream(content));
+	}
+}
@@ -0,0 +1,92 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.SimpleType;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnmarshalBenchmark {
+
+	@Param
+	public DefinitionShape shape;
+	
+	private byte [] content;
+	private XMLDefinitionUnmarshaller unmarshaller;
+	private SimpleType<?> stringType;
+	private Map<String, String> attributes = new LinkedHashMap<String, String>();
+	
+	@Setup
+	public void setup() throws IOException, ParseException {
+		content = shape.getBytes();
+		unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setTypeResolver(DefinitionShape.newResolver());
+		stringType = unmarshaller.getSimpleType("java.lang.String");
+		attributes.put("name", "field");
+		attributes.put("type", "java.lang.String");
+		attributes.put("minOccurs", "0");
+		attributes.put("maxOccurs", "unbounded");
+	}
+	
+	@Benchmark
+	public ComplexType unmarshalDocument() throws IOException, ParseException {
+		unmarshaller.setStreaming(false);
+		return unmarshaller.unmarshal(new ByteArrayInputStream(content));
+	}
+	
+	@Benchmark
+	public ComplexType unmarshalStreaming() throws IOException, ParseException {
+		unmarshaller.setStreaming(true);
+		return unmarshaller.unmarshal(new ByteArrayInputStream(content));
+	}
+	
+	/**
+	 * The binding of the attributes of a single field declaration
+	 */
+	@Benchmark
+	public List<Value<?>> unmarshalAttributes() throws ParseException {
+		return unmarshaller.unmarshalAttributes(attributes, stringType, "type", "superType");
+	}
+}
@@ -0,0 +1,178 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.nabu.libs.property.api.Property;
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.Type;
+import be.nabu.libs.types.properties.AttributeQualifiedDefaultProperty;
+import be.nabu.libs.types.properties.CollectionHandlerProviderProperty;
+import be.nabu.libs.types.properties.ElementQualifiedDefaultProperty;
+import be.nabu.libs.types.properties.QualifiedProperty;
+
+/**
+ * Maps attribute names to the properties they bind to for a given type
+ * The supported properties of a type can depend on the values that are already set (e.g. the "actualType" of the string wrapper) so the bindings are cached per type and per state
+ * The state is identified by the attributes that have already been bound, only the value of dependent properties (those that change the supported properties) is part of it
+ * Otherwise free text attributes like comments would fill up the available states with identical bindings
+ * Only shared types (simple types and defined types) are cached, an anonymous structure is only ever used for a single element
+ * The cache for a type is rebuilt if its own properties or its supertype change
+ */
+public class AttributeBindingIndex {
+	
+	/**
+	 * The maximum amount of different states we cache for a single type
+	 */
+	private static final int MAX_STATES = 64;
+	
+	private static AttributeBindingIndex instance = new AttributeBindingIndex();
+	
+	public static AttributeBindingIndex getInstance() {
+		return instance;
+	}
+	
+	private Map<Type, TypeBindings> bindings = Collections.synchronizedMap(new WeakHashMap<Type, TypeBindings>());
+	
+	/**
+	 * Properties that are always considered dependent, whatever the type says
+	 */
+	private Set<String> dependentProperties = Collections.synchronizedSet(new HashSet<String>(Arrays.asList("actualType")));
+	
+	/**
+	 * The state is a string that uniquely identifies the values that were already bound, it should be empty if no values were bound yet
+	 */
+	public Map<String, Property<?>> getBindings(Type type, String state, Value<?>...values) {
+		if (type instanceof ComplexType && !(type instanceof DefinedType)) {
+			return index(type, values);
+		}
+		TypeBindings typeBindings = bindings.get(type);
+		if (typeBindings == null || !typeBindings.isValid(type)) {
+			typeBindings = new TypeBindings(type);
+			bindings.put(type, typeBindings);
+		}
+		Map<String, Property<?>> index = typeBindings.states.get(state);
+		if (index == null) {
+			index = index(type, values);
+			if (typeBindings.states.size() < MAX_STATES) {
+				typeBindings.states.put(state, index);
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Whether the value of the given property has to be part of the state, that is if binding it can change the supported properties of the type
+	 * This is determined once per type and property by comparing the supported properties with and without the value
+	 */
+	public boolean isDependent(Type type, Value<?> value, Value<?>...bound) {
+		String name = value.getProperty().getName();
+		if (dependentProperties.contains(name)) {
+			return true;
+		}
+		// not cached so the state is irrelevant
+		if (type instanceof ComplexType && !(type instanceof DefinedType)) {
+			return false;
+		}
+		TypeBindings typeBindings = bindings.get(type);
+		if (typeBindings == null || !typeBindings.isValid(type)) {
+			typeBindings = new TypeBindings(type);
+			bindings.put(type, typeBindings);
+		}
+		Boolean dependent = typeBindings.dependent.get(name);
+		if (dependent == null) {
+			Value<?> [] withValue = Arrays.copyOf(bound, bound.length + 1);
+			withValue[bound.length] = value;
+			dependent = !index(type, bound).keySet().equals(index(type, withValue).keySet());
+			typeBindings.dependent.put(name, dependent);
+		}
+		return dependent;
+	}
+	
+	public void addDependentProperty(String name) {
+		dependentProperties.add(name);
+	}
+	
+	int getStateCount(Type type) {
+		TypeBindings typeBindings = bindings.get(type);
+		return typeBindings == null ? 0 : typeBindings.states.size();
+	}
+	
+	public void invalidate(Type type) {
+		bindings.remove(type);
+	}
+	
+	public void clear() {
+		bindings.clear();
+	}
+	
+	private static Map<String, Property<?>> index(Type type, Value<?>...values) {
+		Map<String, Property<?>> index = new LinkedHashMap<String, Property<?>>();
+		for (Property<?> property : type.getSupportedProperties(values)) {
+			if (!index.containsKey(property.getName())) {
+				index.put(property.getName(), property);
+			}
+		}
+		// these are always supported
+		for (Property<?> property : new Property<?>[] { ElementQualifiedDefaultProperty.getInstance(), AttributeQualifiedDefaultProperty.getInstance(), QualifiedProperty.getInstance(), CollectionHandlerProviderProperty.getInstance() }) {
+			if (!index.containsKey(property.getName())) {
+				index.put(property.getName(), property);
+			}
+		}
+		return Collections.unmodifiableMap(index);
+	}
+	
+	private static class TypeBindings {
+		private Type superType;
+		private Value<?> [] properties;
+		private Map<String, Map<String, Property<?>>> states = new ConcurrentHashMap<String, Map<String, Property<?>>>();
+		private Map<String, Boolean> dependent = new ConcurrentHashMap<String, Boolean>();
+		
+		public TypeBindings(Type type) {
+			this.superType = type.getSuperType();
+			this.properties = type.getProperties();
+		}
+		
+		public boolean isValid(Type type) {
+			if (type.getSuperType() != superType) {
+				return false;
+			}
+			Value<?> [] current = type.getProperties();
+			if (current.length != properties.length) {
+				return false;
+			}
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] != properties[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,232 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.nabu.libs.types.api.MarshalException;
+
+/**
+ * Reads the format written by the binary definition writer
+ */
+public class BinaryDefinitionCursor implements DefinitionCursor {
+
+	/**
+	 * No string in a definition comes near this, a larger length means the input is corrupt
+	 */
+	private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+	/**
+	 * Strings up to this size are allocated at once, larger ones grow as the bytes actually arrive so a truncated input fails before allocating the claimed length
+	 */
+	private static final int CHUNK_SIZE = 8192;
+	
+	private DataInputStream input;
+	private List<String> strings = new ArrayList<String>();
+	private String name;
+	private Map<String, String> attributes;
+	private boolean started, ended;
+	
+	public BinaryDefinitionCursor(InputStream input) {
+		this.input = new DataInputStream(input instanceof BufferedInputStream ? input : new BufferedInputStream(input));
+	}
+	
+	@Override
+	public boolean next() throws ParseException {
+		try {
+			if (!started) {
+				readHeader();
+			}
+			while (!ended) {
+				int event = (int) readVarint();
+				switch (event) {
+					case BinaryDefinitionWriter.EVENT_START:
+						readStart();
+						return true;
+					case BinaryDefinitionWriter.EVENT_END:
+						return false;
+					case BinaryDefinitionWriter.EVENT_TEXT:
+						readString();
+					break;
+					case BinaryDefinitionWriter.EVENT_END_DOCUMENT:
+						ended = true;
+					break;
+					default:
+						throw new ParseException("Unknown event: " + event, 0);
+				}
+			}
+			return false;
+		}
+		catch (IOException e) {
+			throw new MarshalException(e);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Map<String, String> getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public String getText() throws ParseException {
+		try {
+			StringBuilder builder = new StringBuilder();
+			while (true) {
+				int event = (int) readVarint();
+				if (event == BinaryDefinitionWriter.EVENT_TEXT) {
+					builder.append(readString());
+				}
+				else if (event == BinaryDefinitionWriter.EVENT_END) {
+					return builder.toString();
+				}
+				else {
+					throw new ParseException("Expected text content in element: " + name, 0);
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new MarshalException(e);
+		}
+	}
+
+	@Override
+	public void skip() throws ParseException {
+		try {
+			int depth = 1;
+			while (depth > 0) {
+				int event = (int) readVarint();
+				if (event == BinaryDefinitionWriter.EVENT_START) {
+					readStart();
+					depth++;
+				}
+				else if (event == BinaryDefinitionWriter.EVENT_END) {
+					depth--;
+				}
+				else if (event == BinaryDefinitionWriter.EVENT_TEXT) {
+					readString();
+				}
+				else {
+					throw new ParseException("Unexpected event while skipping element: " + event, 0);
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new MarshalException(e);
+		}
+	}
+	
+	private void readHeader() throws IOException, ParseException {
+		started = true;
+		byte [] magic = new byte[BinaryDefinitionWriter.MAGIC.length];
+		input.readFully(magic);
+		if (!Arrays.equals(magic, BinaryDefinitionWriter.MAGIC)) {
+			throw new ParseException("Not a binary definition", 0);
+		}
+		int version = input.readUnsignedByte();
+		if (version != BinaryDefinitionWriter.VERSION) {
+			throw new ParseException("Unsupported binary definition version: " + version, 0);
+		}
+	}
+	
+	private void readStart() throws IOException, ParseException {
+		name = readString();
+		int amount = (int) readVarint();
+		attributes = new LinkedHashMap<String, String>();
+		for (int i = 0; i < amount; i++) {
+			String attributeName = readString();
+			attributes.put(attributeName, readValue());
+		}
+	}
+	
+	private String readValue() throws IOException, ParseException {
+		int type = (int) readVarint();
+		switch (type) {
+			case BinaryDefinitionWriter.VALUE_STRING: return readString();
+			case BinaryDefinitionWriter.VALUE_TRUE: return "true";
+			case BinaryDefinitionWriter.VALUE_FALSE: return "false";
+			case BinaryDefinitionWriter.VALUE_NUMBER:
+				long value = readVarint();
+				return Long.toString((value >>> 1) ^ -(value & 1));
+			default:
+				throw new ParseException("Unknown value type: " + type, 0);
+		}
+	}
+	
+	private String readString() throws IOException, ParseException {
+		long reference = readVarint();
+		if (reference == 0) {
+			long length = readVarint();
+			if (length < 0 || length > MAX_STRING_LENGTH) {
+				throw new ParseException("Invalid string length: " + length, 0);
+			}
+			String value = new String(readBytes((int) length), BinaryDefinitionWriter.CHARSET);
+			strings.add(value);
+			return value;
+		}
+		else if (reference < 0 || reference > strings.size()) {
+			throw new ParseException("Invalid string reference: " + reference, 0);
+		}
+		return strings.get((int) reference - 1);
+	}
+	
+	private byte [] readBytes(int length) throws IOException {
+		byte [] bytes = new byte[Math.min(length, CHUNK_SIZE)];
+		int read = 0;
+		while (read < length) {
+			if (read == bytes.length) {
+				bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+			}
+			int amount = input.read(bytes, read, bytes.length - read);
+			if (amount < 0) {
+				throw new EOFException();
+			}
+			read += amount;
+		}
+		return bytes;
+	}
+	
+	private long readVarint() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int read = input.read();
+			if (read < 0) {
+				throw new EOFException();
+			}
+			value |= (long) (read & 0x7F) << shift;
+			if ((read & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Invalid varint");
+	}
+}
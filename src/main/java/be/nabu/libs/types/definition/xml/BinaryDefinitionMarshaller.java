@@ -0,0 +1,32 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.OutputStream;
+
+/**
+ * Marshals definitions in the binary format, all the settings of the xml marshaller (apart from the formatting) apply
+ * The binary format is always streamed, the listener receives the same metrics as for xml
+ */
+public class BinaryDefinitionMarshaller extends XMLDefinitionMarshaller {
+	@Override
+	protected DefinitionWriter newWriter(OutputStream output) {
+		return new BinaryDefinitionWriter(output);
+	}
+}
@@ -0,0 +1,49 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.ModifiableComplexType;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+/**
+ * Unmarshals definitions in the binary format, the semantics are identical to the xml unmarshaller as they share the same engine
+ * The lazy and streaming settings have no effect, the binary format is always streamed
+ */
+public class BinaryDefinitionUnmarshaller extends XMLDefinitionUnmarshaller {
+	
+	@Override
+	protected ComplexType unmarshalInput(InputStream input) throws IOException, ParseException {
+		return unmarshal(new BinaryDefinitionCursor(input), new DefinedStructure());
+	}
+
+	@Override
+	protected void unmarshalInput(InputStream input, ModifiableComplexType structure) throws ParseException, IOException {
+		unmarshal(new BinaryDefinitionCursor(input), structure);
+	}
+
+	@Override
+	protected XMLDefinitionUnmarshaller newInstance() {
+		return new BinaryDefinitionUnmarshaller();
+	}
+}
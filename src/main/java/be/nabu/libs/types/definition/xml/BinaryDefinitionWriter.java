@@ -0,0 +1,196 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a definition in a compact binary format, the structure is identical to the xml one
+ * 
+ * The format starts with the magic bytes "NDEF" and a version, followed by a list of events:
+ * - start: the element name and its attributes (name and typed value)
+ * - text: the text content of the element
+ * - end
+ * - the end of the document
+ * 
+ * Numbers are written as (zigzag) varints, strings are written once and referenced by their index afterwards
+ * Attribute values that are numbers or booleans in their canonical form are written as such, anything else is written as string
+ */
+public class BinaryDefinitionWriter implements DefinitionWriter {
+
+	static final byte [] MAGIC = new byte [] { 'N', 'D', 'E', 'F' };
+	static final int VERSION = 1;
+	
+	static final int EVENT_END_DOCUMENT = 0;
+	static final int EVENT_START = 1;
+	static final int EVENT_TEXT = 2;
+	static final int EVENT_END = 3;
+	
+	static final int VALUE_STRING = 0;
+	static final int VALUE_NUMBER = 1;
+	static final int VALUE_TRUE = 2;
+	static final int VALUE_FALSE = 3;
+	
+	static final Charset CHARSET = Charset.forName("UTF-8");
+	
+	private DataOutputStream output;
+	private Map<String, Integer> strings = new HashMap<String, Integer>();
+	private Map<String, String> attributes = new TreeMap<String, String>();
+	private String pending;
+	private boolean started;
+	private int depth;
+	
+	public BinaryDefinitionWriter(OutputStream output) {
+		this.output = new DataOutputStream(new BufferedOutputStream(output));
+	}
+	
+	@Override
+	public void start(String name) throws IOException {
+		if (!started) {
+			started = true;
+			output.write(MAGIC);
+			output.write(VERSION);
+		}
+		writePending();
+		pending = name;
+		depth++;
+	}
+
+	@Override
+	public void attribute(String name, String value) throws IOException {
+		if (pending == null) {
+			throw new IllegalStateException("Can not set attribute '" + name + "' after the content of the element has been written");
+		}
+		attributes.put(name, value);
+	}
+
+	@Override
+	public void text(String text) throws IOException {
+		// an empty text is not written, like in the DOM
+		if (text == null || text.isEmpty()) {
+			return;
+		}
+		writePending();
+		writeVarint(EVENT_TEXT);
+		writeString(text);
+	}
+
+	@Override
+	public void end() throws IOException {
+		writePending();
+		writeVarint(EVENT_END);
+		if (--depth == 0) {
+			writeVarint(EVENT_END_DOCUMENT);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		output.flush();
+	}
+	
+	private void writePending() throws IOException {
+		if (pending != null) {
+			writeVarint(EVENT_START);
+			writeString(pending);
+			writeVarint(attributes.size());
+			for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+				writeString(attribute.getKey());
+				writeValue(attribute.getValue());
+			}
+			attributes.clear();
+			pending = null;
+		}
+	}
+	
+	private void writeValue(String value) throws IOException {
+		if ("true".equals(value)) {
+			writeVarint(VALUE_TRUE);
+		}
+		else if ("false".equals(value)) {
+			writeVarint(VALUE_FALSE);
+		}
+		else {
+			Long number = toNumber(value);
+			if (number == null) {
+				writeVarint(VALUE_STRING);
+				writeString(value);
+			}
+			else {
+				writeVarint(VALUE_NUMBER);
+				// zigzag encoding so small negative numbers stay small
+				writeVarint((number << 1) ^ (number >> 63));
+			}
+		}
+	}
+	
+	/**
+	 * Only numbers that are written in their canonical form can be stored as number, otherwise we would lose the original notation
+	 */
+	private static Long toNumber(String value) {
+		if (value.isEmpty() || value.length() > 19) {
+			return null;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char character = value.charAt(i);
+			if ((character < '0' || character > '9') && !(i == 0 && character == '-' && value.length() > 1)) {
+				return null;
+			}
+		}
+		try {
+			long number = Long.parseLong(value);
+			return Long.toString(number).equals(value) ? number : null;
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * A reference of 0 means the string follows, otherwise it is the index of an earlier string + 1
+	 */
+	private void writeString(String value) throws IOException {
+		Integer index = strings.get(value);
+		if (index == null) {
+			strings.put(value, strings.size());
+			writeVarint(0);
+			byte [] bytes = value.getBytes(CHARSET);
+			writeVarint(bytes.length);
+			output.write(bytes);
+		}
+		else {
+			writeVarint(index + 1);
+		}
+	}
+	
+	private void writeVarint(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			output.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		output.write((int) value);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads from a byte buffer (e.g. a memory mapped file) without copying it to the heap first
+ * The buffer is duplicated so the position of the original is not modified
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private ByteBuffer buffer;
+	
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate();
+	}
+	
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte [] bytes, int offset, int length) {
+		if (length == 0) {
+			return 0;
+		}
+		else if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		int amount = Math.min(length, buffer.remaining());
+		buffer.get(bytes, offset, amount);
+		return amount;
+	}
+
+	@Override
+	public long skip(long amount) {
+		int skipped = (int) Math.min(Math.max(amount, 0), buffer.remaining());
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
@@ -0,0 +1,49 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes into a byte buffer (heap or direct), the position of the buffer is advanced by what is written
+ * If the buffer is too small, a BufferOverflowException is thrown, the buffer is never replaced by a bigger one
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+	private ByteBuffer buffer;
+	
+	public ByteBufferOutputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	
+	@Override
+	public void write(int value) {
+		buffer.put((byte) value);
+	}
+
+	@Override
+	public void write(byte [] bytes, int offset, int length) {
+		buffer.put(bytes, offset, length);
+	}
+	
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+}
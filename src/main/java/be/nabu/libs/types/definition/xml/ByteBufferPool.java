@@ -0,0 +1,64 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps direct buffers per thread so channel I/O does not allocate (and later collect) a new buffer for every definition
+ * Like the factory pool, buffers are acquired and released so reentrant use on the same thread simply gets a second buffer
+ */
+public class ByteBufferPool {
+
+	public static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * How many idle buffers we keep per thread
+	 */
+	private static final int MAX_IDLE = 4;
+	
+	private static ThreadLocal<Deque<ByteBuffer>> buffers = new ThreadLocal<Deque<ByteBuffer>>() {
+		@Override
+		protected Deque<ByteBuffer> initialValue() {
+			return new ArrayDeque<ByteBuffer>();
+		}
+	};
+	
+	public static ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.get().poll();
+		return buffer == null ? ByteBuffer.allocateDirect(BUFFER_SIZE) : buffer;
+	}
+	
+	public static void release(ByteBuffer buffer) {
+		buffer.clear();
+		Deque<ByteBuffer> pool = buffers.get();
+		if (pool.size() < MAX_IDLE) {
+			pool.push(buffer);
+		}
+	}
+	
+	/**
+	 * Drops all the buffers cached for the current thread
+	 */
+	public static void clear() {
+		buffers.remove();
+	}
+}
@@ -0,0 +1,204 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.DefinedTypeResolver;
+
+/**
+ * Wraps a resolver so each id is only loaded once, even if many threads ask for it at the same time
+ * The first thread to ask for an id loads it, the others wait for its result instead of doing the same (nested) unmarshalling
+ * The in-flight loads are kept in a concurrent map so threads only contend when they ask for the same id
+ * Ids that could not be resolved (the ignored references of the unmarshaller) are remembered as well
+ * If waiting for another thread would deadlock (because that thread is directly or indirectly waiting for us), the id is resolved without waiting
+ */
+public class CachingDefinedTypeResolver implements DefinedTypeResolver {
+
+	private DefinedTypeResolver parent;
+	
+	private Map<String, DefinedType> resolved = new ConcurrentHashMap<String, DefinedType>();
+	private Set<String> unresolvable = ConcurrentHashMap.newKeySet();
+	private Map<String, Load> loading = new ConcurrentHashMap<String, Load>();
+	/**
+	 * The wait graph, checking it and registering ourselves in it must be atomic, otherwise two threads waiting for each other can both conclude it is safe to wait
+	 */
+	private Map<Thread, Load> waiting = new HashMap<Thread, Load>();
+	
+	private AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), waits = new AtomicLong();
+	
+	public CachingDefinedTypeResolver(DefinedTypeResolver parent) {
+		this.parent = parent;
+	}
+	
+	@Override
+	public DefinedType resolve(String id) {
+		DefinedType type = resolved.get(id);
+		if (type != null || unresolvable.contains(id)) {
+			hits.incrementAndGet();
+			return type;
+		}
+		Load load = new Load();
+		Load existing = loading.putIfAbsent(id, load);
+		if (existing == null) {
+			try {
+				// another load may have completed between our first check and claiming the id
+				type = resolved.get(id);
+				if (type != null || unresolvable.contains(id)) {
+					hits.incrementAndGet();
+					load.complete(type, null);
+					return type;
+				}
+				misses.incrementAndGet();
+				type = parent.resolve(id);
+				if (type == null) {
+					unresolvable.add(id);
+				}
+				else {
+					resolved.put(id, type);
+				}
+				load.complete(type, null);
+				return type;
+			}
+			catch (RuntimeException e) {
+				load.complete(null, e);
+				throw e;
+			}
+			catch (Error e) {
+				load.complete(null, e);
+				throw e;
+			}
+			finally {
+				loading.remove(id, load);
+			}
+		}
+		boolean deadlock;
+		synchronized(waiting) {
+			waiting.put(Thread.currentThread(), existing);
+			deadlock = isDeadlock(existing);
+			if (deadlock) {
+				waiting.remove(Thread.currentThread());
+			}
+		}
+		if (deadlock) {
+			misses.incrementAndGet();
+			return parent.resolve(id);
+		}
+		waits.incrementAndGet();
+		try {
+			return existing.await();
+		}
+		finally {
+			synchronized(waiting) {
+				waiting.remove(Thread.currentThread());
+			}
+		}
+	}
+	
+	/**
+	 * Follows the chain of threads waiting for one another, if it leads back to us we can not wait
+	 * This must be called while holding the lock on the wait graph
+	 */
+	private boolean isDeadlock(Load load) {
+		Thread current = Thread.currentThread();
+		Thread owner = load.owner;
+		// the chain can never be longer than the amount of waiting threads
+		for (int i = 0; i <= waiting.size(); i++) {
+			if (owner == current) {
+				return true;
+			}
+			Load next = waiting.get(owner);
+			if (next == null) {
+				return false;
+			}
+			owner = next.owner;
+		}
+		return false;
+	}
+	
+	/**
+	 * Marks the ids as unresolvable, for example the ignored references of an unmarshaller
+	 */
+	public void ignore(Collection<String> ids) {
+		unresolvable.addAll(ids);
+	}
+	
+	public void invalidate(String id) {
+		resolved.remove(id);
+		unresolvable.remove(id);
+	}
+	
+	public void clear() {
+		resolved.clear();
+		unresolvable.clear();
+	}
+	
+	public long getHits() {
+		return hits.get();
+	}
+	
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	public long getWaits() {
+		return waits.get();
+	}
+	
+	public DefinedTypeResolver getParent() {
+		return parent;
+	}
+	
+	private static class Load {
+		private Thread owner = Thread.currentThread();
+		private CountDownLatch latch = new CountDownLatch(1);
+		private volatile DefinedType type;
+		private volatile Throwable exception;
+		
+		public void complete(DefinedType type, Throwable exception) {
+			this.type = type;
+			this.exception = exception;
+			latch.countDown();
+		}
+		
+		public DefinedType await() {
+			try {
+				latch.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for the definition to load", e);
+			}
+			if (exception instanceof RuntimeException) {
+				throw (RuntimeException) exception;
+			}
+			else if (exception instanceof Error) {
+				throw (Error) exception;
+			}
+			return type;
+		}
+	}
+}
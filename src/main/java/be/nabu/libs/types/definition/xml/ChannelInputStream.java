@@ -0,0 +1,93 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads from a channel through a pooled buffer
+ * Closing the stream returns the buffer to the pool, the channel itself is not closed (the parsers close their input once they are done)
+ */
+public class ChannelInputStream extends InputStream {
+
+	private ReadableByteChannel channel;
+	private ByteBuffer buffer;
+	
+	public ChannelInputStream(ReadableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBufferPool.acquire();
+		// nothing has been read yet
+		this.buffer.flip();
+	}
+	
+	@Override
+	public int read() throws IOException {
+		return fill() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte [] bytes, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		else if (!fill()) {
+			return -1;
+		}
+		int amount = Math.min(length, buffer.remaining());
+		buffer.get(bytes, offset, amount);
+		return amount;
+	}
+
+	@Override
+	public int available() {
+		return buffer == null ? 0 : buffer.remaining();
+	}
+
+	@Override
+	public void close() {
+		if (buffer != null) {
+			ByteBufferPool.release(buffer);
+			buffer = null;
+		}
+	}
+	
+	/**
+	 * Returns false if the channel is exhausted
+	 */
+	private boolean fill() throws IOException {
+		if (buffer == null) {
+			throw new IOException("The stream is closed");
+		}
+		else if (buffer.hasRemaining()) {
+			return true;
+		}
+		buffer.clear();
+		int read;
+		// the channel is expected to be in blocking mode, a non-blocking channel might need multiple attempts
+		do {
+			read = channel.read(buffer);
+		}
+		while (read == 0);
+		buffer.flip();
+		return read > 0;
+	}
+}
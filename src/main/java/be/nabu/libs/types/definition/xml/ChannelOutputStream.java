@@ -0,0 +1,90 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes to a channel through a pooled buffer, the buffer is drained to the channel whenever it is full
+ * Closing the stream flushes it and returns the buffer to the pool, the channel itself is not closed
+ */
+public class ChannelOutputStream extends OutputStream {
+
+	private WritableByteChannel channel;
+	private ByteBuffer buffer;
+	
+	public ChannelOutputStream(WritableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBufferPool.acquire();
+	}
+	
+	@Override
+	public void write(int value) throws IOException {
+		if (!buffer.hasRemaining()) {
+			drain();
+		}
+		buffer.put((byte) value);
+	}
+
+	@Override
+	public void write(byte [] bytes, int offset, int length) throws IOException {
+		while (length > 0) {
+			if (!buffer.hasRemaining()) {
+				drain();
+			}
+			int amount = Math.min(length, buffer.remaining());
+			buffer.put(bytes, offset, amount);
+			offset += amount;
+			length -= amount;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (buffer != null) {
+			try {
+				drain();
+			}
+			finally {
+				ByteBufferPool.release(buffer);
+				buffer = null;
+			}
+		}
+	}
+	
+	private void drain() throws IOException {
+		if (buffer == null) {
+			throw new IOException("The stream is closed");
+		}
+		buffer.flip();
+		// the channel is expected to be in blocking mode, a non-blocking channel might need multiple attempts
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
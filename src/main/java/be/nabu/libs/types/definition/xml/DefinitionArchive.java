@@ -0,0 +1,178 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.DefinedTypeResolver;
+import be.nabu.libs.types.api.MarshalException;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+/**
+ * Gives random access by id to the definitions in an archive written by the definition archive writer
+ * The archive is memory mapped and definitions are unmarshalled straight from the mapped region
+ * Every lookup unmarshals the definition again, wrap it in a caching resolver if you use it as a resolver
+ * The archive can be used concurrently, closing it waits for the lookups that are in progress
+ */
+public class DefinitionArchive implements DefinedTypeResolver, Closeable {
+
+	private XMLDefinitionUnmarshaller unmarshaller;
+	private MappedByteBuffer buffer;
+	private Map<String, long []> index = new LinkedHashMap<String, long []>();
+	private ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	public DefinitionArchive(Path file, XMLDefinitionUnmarshaller unmarshaller) throws IOException {
+		this.unmarshaller = unmarshaller;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("The archive is too large to be mapped: " + channel.size());
+			}
+			// the mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		readIndex();
+	}
+	
+	private void readIndex() throws IOException {
+		ByteBuffer view = buffer.duplicate();
+		byte [] magic = new byte[DefinitionArchiveWriter.MAGIC.length];
+		view.get(magic);
+		if (!Arrays.equals(magic, DefinitionArchiveWriter.MAGIC)) {
+			throw new IOException("Not a definition archive");
+		}
+		int version = view.get() & 0xFF;
+		if (version != DefinitionArchiveWriter.VERSION) {
+			throw new IOException("Unsupported definition archive version: " + version);
+		}
+		view.position((int) view.getLong(view.limit() - 8));
+		// the ids are written with writeUTF() which uses modified UTF-8, read them with its counterpart
+		DataInputStream input = new DataInputStream(new ByteBufferInputStream(view));
+		int amount = input.readInt();
+		for (int i = 0; i < amount; i++) {
+			String id = input.readUTF();
+			long offset = input.readLong();
+			int length = input.readInt();
+			index.put(id, new long [] { offset, length });
+		}
+	}
+	
+	public Set<String> getIds() {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return Collections.unmodifiableSet(index.keySet());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns a read-only view on the marshalled definition or null if it is not in the archive
+	 */
+	public ByteBuffer getContent(String id) {
+		lock.readLock().lock();
+		try {
+			return getContentUnlocked(id);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private ByteBuffer getContentUnlocked(String id) {
+		checkOpen();
+		long [] entry = index.get(id);
+		if (entry == null) {
+			return null;
+		}
+		ByteBuffer content = buffer.duplicate();
+		content.position((int) entry[0]);
+		content.limit((int) (entry[0] + entry[1]));
+		return content.slice().asReadOnlyBuffer();
+	}
+	
+	public ComplexType unmarshal(String id) throws IOException, ParseException {
+		// the buffer is in use for the whole unmarshalling, the archive can not be closed in the meantime
+		lock.readLock().lock();
+		try {
+			ByteBuffer content = getContentUnlocked(id);
+			if (content == null) {
+				return null;
+			}
+			DefinedStructure structure = new DefinedStructure();
+			structure.setId(id);
+			// all the state of the call is in the context so the archive can be used concurrently
+			unmarshaller.unmarshal(new ByteBufferInputStream(content), structure, new UnmarshalContext(id));
+			return structure;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private void checkOpen() {
+		if (buffer == null) {
+			throw new IllegalStateException("The definition archive is closed");
+		}
+	}
+
+	@Override
+	public DefinedType resolve(String id) {
+		try {
+			return (DefinedType) unmarshal(id);
+		}
+		catch (IOException e) {
+			throw new MarshalException(e);
+		}
+		catch (ParseException e) {
+			throw new MarshalException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			// a mapped buffer can not be released explicitly, dropping the reference allows it to be collected
+			buffer = null;
+			index.clear();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+}
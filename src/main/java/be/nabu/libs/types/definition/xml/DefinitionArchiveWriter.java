@@ -0,0 +1,124 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.ComplexType;
+
+/**
+ * Packs many marshalled definitions in a single file that can be read with a definition archive
+ * 
+ * The layout is:
+ * - the magic bytes "NDAR" and a version
+ * - the definitions, one after the other
+ * - the index: the amount of entries followed by the id, offset and length of each definition
+ * - the offset of the index (8 bytes)
+ * The index is written at the end so the definitions can be streamed into the file as they are marshalled
+ */
+public class DefinitionArchiveWriter implements Closeable {
+
+	static final byte [] MAGIC = new byte [] { 'N', 'D', 'A', 'R' };
+	static final int VERSION = 1;
+	
+	private XMLDefinitionMarshaller marshaller;
+	private CountingOutputStream output;
+	private Map<String, long []> index = new LinkedHashMap<String, long []>();
+	
+	public DefinitionArchiveWriter(Path file, XMLDefinitionMarshaller marshaller) throws IOException {
+		this.marshaller = marshaller;
+		this.output = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+		output.write(MAGIC);
+		output.write(VERSION);
+	}
+	
+	public void add(String id, ComplexType type, Value<?>...values) throws IOException {
+		long offset = start(id);
+		marshaller.marshal(output, type, values);
+		index.put(id, new long [] { offset, output.count - offset });
+	}
+	
+	/**
+	 * Adds an already marshalled definition
+	 */
+	public void add(String id, InputStream definition) throws IOException {
+		long offset = start(id);
+		byte [] buffer = new byte[8192];
+		int read;
+		while ((read = definition.read(buffer)) > 0) {
+			output.write(buffer, 0, read);
+		}
+		index.put(id, new long [] { offset, output.count - offset });
+	}
+	
+	private long start(String id) {
+		if (index.containsKey(id)) {
+			throw new IllegalArgumentException("The archive already contains a definition with id: " + id);
+		}
+		return output.count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			long indexOffset = output.count;
+			DataOutputStream data = new DataOutputStream(output);
+			data.writeInt(index.size());
+			for (Map.Entry<String, long []> entry : index.entrySet()) {
+				data.writeUTF(entry.getKey());
+				data.writeLong(entry.getValue()[0]);
+				data.writeInt((int) entry.getValue()[1]);
+			}
+			data.writeLong(indexOffset);
+			data.flush();
+		}
+		finally {
+			output.close();
+		}
+	}
+	
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count;
+		
+		public CountingOutputStream(OutputStream output) {
+			super(output);
+		}
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+		@Override
+		public void write(byte [] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+			count += length;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.definition.xml;
+
+import java.text.ParseException;
+import java.util.Map;
+
+/**
+ * A forward-only view on a definition, it only exposes what the unmarshaller actually needs: elements, their attributes and their text content
+ * The cursor is always positioned on an element, calling next() moves it to the next child element of that element
+ * Once the element has no more children, next() returns false and the cursor is back in the parent element
+ */
+public interface DefinitionCursor {
+	/**
+	 * Moves to the next child element of the current element, returns false if the current element has ended
+	 */
+	public boolean next() throws ParseException;
+	/**
+	 * The name of the element the cursor is positioned on
+	 */
+	public String getName();
+	/**
+	 * The attributes of the element the cursor is positioned on, in document order
+	 */
+	public Map<String, String> getAttributes();
+	/**
+	 * Reads the text content of the current element, this consumes the element
+	 */
+	public String getText() throws ParseException;
+	/**
+	 * Skips the current element including all its children
+	 */
+	public void skip() throws ParseException;
+}
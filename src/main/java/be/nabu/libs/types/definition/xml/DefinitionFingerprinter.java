@@ -0,0 +1,333 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.Group;
+import be.nabu.libs.types.api.MarshalException;
+import be.nabu.libs.types.api.Type;
+
+/**
+ * Calculates a stable fingerprint of a definition without generating any xml
+ * It walks exactly what the marshaller would write (using the same settings) but feeds it into a digest instead
+ * Attributes are sorted and no formatting is involved so the result only depends on the content
+ * 
+ * The content of each complex type is digested once and cached, a cached digest is only used as long as the type (its properties, supertypes and children) is unchanged
+ * Changes are detected by identity: replacing a value or an element is noticed, modifying a value in place is not, call invalidate() for that
+ */
+public class DefinitionFingerprinter extends XMLDefinitionMarshaller {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private String algorithm = "SHA-256";
+	private boolean caching = true;
+	private Map<ComplexType, CacheEntry> cache = Collections.synchronizedMap(new WeakHashMap<ComplexType, CacheEntry>());
+	
+	public byte [] fingerprint(ComplexType type, Value<?>...values) {
+		DigestWriter writer = new DigestWriter(newDigest());
+		try {
+			marshal(writer, type, values);
+		}
+		catch (IOException e) {
+			// the digest writer does not do any I/O
+			throw new MarshalException(e);
+		}
+		return writer.digest.digest();
+	}
+	
+	public String getFingerprint(ComplexType type, Value<?>...values) {
+		byte [] fingerprint = fingerprint(type, values);
+		StringBuilder builder = new StringBuilder();
+		for (byte single : fingerprint) {
+			builder.append(Character.forDigit((single >> 4) & 0xF, 16)).append(Character.forDigit(single & 0xF, 16));
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * The content of a type does not depend on the element that contains it so we can digest it once and reuse that
+	 */
+	@Override
+	protected void serializeInto(DefinitionWriter writer, ComplexType type, Value<?>...values) throws IOException {
+		if (!(writer instanceof DigestWriter)) {
+			super.serializeInto(writer, type, values);
+			return;
+		}
+		byte [] content = getContentDigest(type, values);
+		// the digest of the surrounding type depends on this one
+		((DigestWriter) writer).nested.put(type, content);
+		((DigestWriter) writer).content(content);
+	}
+	
+	private byte [] getContentDigest(ComplexType type, Value<?>...values) throws IOException {
+		CacheEntry entry = caching ? cache.get(type) : null;
+		if (entry != null && isValid(type, entry)) {
+			return entry.digest;
+		}
+		DigestWriter contentWriter = new DigestWriter(newDigest());
+		super.serializeInto(contentWriter, type, values);
+		contentWriter.flush();
+		byte [] content = contentWriter.digest.digest();
+		if (caching) {
+			cache.put(type, new CacheEntry(content, getState(type), contentWriter.nested));
+		}
+		return content;
+	}
+	
+	/**
+	 * The entry is valid if the type itself is unchanged and the nested types still have the digest that was used
+	 */
+	private boolean isValid(ComplexType type, CacheEntry entry) {
+		List<Object> state = getState(type);
+		if (state.size() != entry.state.length) {
+			return false;
+		}
+		for (int i = 0; i < entry.state.length; i++) {
+			if (entry.state[i].get() != state.get(i)) {
+				return false;
+			}
+		}
+		for (int i = 0; i < entry.nested.length; i++) {
+			ComplexType nested = entry.nested[i].get();
+			CacheEntry nestedEntry = nested == null ? null : cache.get(nested);
+			if (nestedEntry == null || !Arrays.equals(nestedEntry.digest, entry.nestedDigests[i]) || !isValid(nested, nestedEntry)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Everything that determines the content of the type (apart from the nested types), compared by identity
+	 * This includes the types of the children and the groups as the marshaller writes (or filters on) those as well
+	 */
+	private static List<Object> getState(ComplexType type) {
+		List<Object> state = new ArrayList<Object>();
+		// depending on the settings, inherited children are written as well
+		for (Type current = type; current != null; current = current.getSuperType()) {
+			state.add(current);
+			state.addAll(Arrays.asList(current.getProperties()));
+			if (current instanceof ComplexType) {
+				for (Element<?> child : (ComplexType) current) {
+					state.add(child);
+					state.addAll(Arrays.asList(child.getProperties()));
+					// the properties of the type determine which properties of the element are written
+					state.add(child.getType());
+					if (child.getType() != null) {
+						state.addAll(Arrays.asList(child.getType().getProperties()));
+					}
+				}
+				Group [] groups = ((ComplexType) current).getGroups();
+				if (groups != null) {
+					for (Group group : groups) {
+						state.add(group);
+						state.addAll(Arrays.asList(group.getProperties()));
+						for (Element<?> member : group) {
+							state.add(member);
+						}
+					}
+				}
+			}
+		}
+		return state;
+	}
+	
+	private MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	public void invalidate(ComplexType type) {
+		cache.remove(type);
+	}
+	
+	public void clear() {
+		cache.clear();
+	}
+	
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public void setAlgorithm(String algorithm) {
+		this.algorithm = algorithm;
+		clear();
+	}
+
+	public boolean isCaching() {
+		return caching;
+	}
+
+	public void setCaching(boolean caching) {
+		this.caching = caching;
+	}
+
+	/**
+	 * The settings below change what is written, the cached digests no longer apply
+	 */
+	@Override
+	public void setResolveDefinitions(boolean resolveDefinitions) {
+		super.setResolveDefinitions(resolveDefinitions);
+		clear();
+	}
+
+	@Override
+	public void setResolveExtensions(boolean resolveExtensions) {
+		super.setResolveExtensions(resolveExtensions);
+		clear();
+	}
+
+	@Override
+	public void setIgnoreUnknownSuperTypes(boolean ignoreUnknownSuperTypes) {
+		super.setIgnoreUnknownSuperTypes(ignoreUnknownSuperTypes);
+		clear();
+	}
+
+	@Override
+	public void setCodecs(PropertyCodecs codecs) {
+		super.setCodecs(codecs);
+		clear();
+	}
+	
+	/**
+	 * Only weak references are kept, the children refer to the type as their parent and the cache must not keep it alive
+	 */
+	private static class CacheEntry {
+		private byte [] digest;
+		private WeakReference<?> [] state;
+		private WeakReference<ComplexType> [] nested;
+		private byte [][] nestedDigests;
+		
+		@SuppressWarnings("unchecked")
+		public CacheEntry(byte [] digest, List<Object> state, Map<ComplexType, byte[]> nested) {
+			this.digest = digest;
+			this.state = new WeakReference<?>[state.size()];
+			for (int i = 0; i < state.size(); i++) {
+				this.state[i] = new WeakReference<Object>(state.get(i));
+			}
+			this.nested = new WeakReference[nested.size()];
+			this.nestedDigests = new byte[nested.size()][];
+			int i = 0;
+			for (Map.Entry<ComplexType, byte[]> entry : nested.entrySet()) {
+				this.nested[i] = new WeakReference<ComplexType>(entry.getKey());
+				this.nestedDigests[i++] = entry.getValue();
+			}
+		}
+	}
+
+	/**
+	 * Every token is framed with a marker and strings are length-prefixed so different structures can not produce the same input for the digest
+	 * Attributes are buffered until the start tag is complete so they can be digested in sorted order
+	 */
+	private static class DigestWriter implements DefinitionWriter {
+		
+		private static final byte START = 1, ATTRIBUTE = 2, TEXT = 3, END = 4, CONTENT_DIGEST = 5;
+		
+		private MessageDigest digest;
+		private Map<String, String> attributes = new TreeMap<String, String>();
+		private byte [] content;
+		/**
+		 * The content digests of the complex types that were written (not the ones they contain themselves)
+		 */
+		private Map<ComplexType, byte[]> nested = new IdentityHashMap<ComplexType, byte[]>();
+		
+		public DigestWriter(MessageDigest digest) {
+			this.digest = digest;
+		}
+		
+		@Override
+		public void start(String name) {
+			writePending();
+			digest.update(START);
+			update(name);
+		}
+
+		@Override
+		public void attribute(String name, String value) {
+			attributes.put(name, value);
+		}
+		
+		public void content(byte [] content) {
+			this.content = content;
+		}
+
+		@Override
+		public void text(String text) {
+			if (text != null && !text.isEmpty()) {
+				writePending();
+				digest.update(TEXT);
+				update(text);
+			}
+		}
+
+		@Override
+		public void end() {
+			writePending();
+			digest.update(END);
+		}
+
+		@Override
+		public void flush() {
+			writePending();
+		}
+		
+		private void writePending() {
+			for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+				digest.update(ATTRIBUTE);
+				update(attribute.getKey());
+				update(attribute.getValue());
+			}
+			attributes.clear();
+			if (content != null) {
+				digest.update(CONTENT_DIGEST);
+				digest.update(content);
+				content = null;
+			}
+		}
+		
+		private void update(String value) {
+			byte [] bytes = value == null ? new byte[0] : value.getBytes(UTF8);
+			int length = value == null ? -1 : bytes.length;
+			digest.update((byte) (length >>> 24));
+			digest.update((byte) (length >>> 16));
+			digest.update((byte) (length >>> 8));
+			digest.update((byte) length);
+			digest.update(bytes);
+		}
+	}
+}
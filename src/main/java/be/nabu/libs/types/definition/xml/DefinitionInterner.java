@@ -0,0 +1,176 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.nabu.libs.property.api.Property;
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.base.ValueImpl;
+
+/**
+ * Canonicalizes the strings and property values that are created while unmarshalling so identical metadata is only kept in memory once
+ * The pool only holds weak references: once no definition uses an instance anymore, it is removed from the pool
+ * The pool is bounded, once it is full new instances are simply not pooled until others have been collected
+ * Only values that wrap immutable objects (strings, numbers, booleans, characters and enums) are pooled
+ */
+public class DefinitionInterner {
+
+	private static DefinitionInterner instance = new DefinitionInterner();
+	
+	public static DefinitionInterner getInstance() {
+		return instance;
+	}
+	
+	private int maxSize;
+	private Map<String, WeakReference<String>> strings = new WeakHashMap<String, WeakReference<String>>();
+	private Map<ValueKey, WeakReference<Value<?>>> values = new WeakHashMap<ValueKey, WeakReference<Value<?>>>();
+	private AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+	
+	public DefinitionInterner() {
+		this(100000);
+	}
+	
+	public DefinitionInterner(int maxSize) {
+		this.maxSize = maxSize;
+	}
+	
+	public String intern(String string) {
+		if (string == null) {
+			return null;
+		}
+		synchronized(strings) {
+			WeakReference<String> reference = strings.get(string);
+			String canonical = reference == null ? null : reference.get();
+			if (canonical != null) {
+				hits.incrementAndGet();
+				return canonical;
+			}
+			misses.incrementAndGet();
+			if (strings.size() < maxSize) {
+				strings.put(string, new WeakReference<String>(string));
+			}
+			return string;
+		}
+	}
+	
+	/**
+	 * Returns the canonical value for the given property and value, a new one is created if necessary
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <T> Value<T> getValue(Property<T> property, T value) {
+		if (!isImmutable(value)) {
+			return new ValueImpl<T>(property, value);
+		}
+		if (value instanceof String) {
+			value = (T) intern((String) value);
+		}
+		ValueKey key = new ValueKey(property, value);
+		synchronized(values) {
+			WeakReference<Value<?>> reference = values.get(key);
+			Value<?> canonical = reference == null ? null : reference.get();
+			if (canonical != null) {
+				hits.incrementAndGet();
+				return (Value<T>) canonical;
+			}
+			misses.incrementAndGet();
+			InternedValue<T> interned = new InternedValue<T>(key, property, value);
+			if (values.size() < maxSize) {
+				values.put(key, new WeakReference<Value<?>>((Value) interned));
+			}
+			return interned;
+		}
+	}
+	
+	private static boolean isImmutable(Object value) {
+		return value == null || value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum;
+	}
+	
+	public long getHits() {
+		return hits.get();
+	}
+	
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	public int getSize() {
+		synchronized(strings) {
+			synchronized(values) {
+				return strings.size() + values.size();
+			}
+		}
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void clear() {
+		synchronized(strings) {
+			strings.clear();
+		}
+		synchronized(values) {
+			values.clear();
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+	
+	/**
+	 * The value holds on to its key so the pool entry lives exactly as long as the value is in use
+	 */
+	private static class InternedValue<T> extends ValueImpl<T> {
+		@SuppressWarnings("unused")
+		private ValueKey key;
+		
+		public InternedValue(ValueKey key, Property<T> property, T value) {
+			super(property, value);
+			this.key = key;
+		}
+	}
+	
+	private static class ValueKey {
+		private Property<?> property;
+		private Object value;
+		
+		public ValueKey(Property<?> property, Object value) {
+			this.property = property;
+			this.value = value;
+		}
+		
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof ValueKey)) {
+				return false;
+			}
+			ValueKey other = (ValueKey) object;
+			return property.equals(other.property) 
+				&& (value == null ? other.value == null : other.value != null && value.getClass().equals(other.value.getClass()) && value.equals(other.value));
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * property.hashCode() + (value == null ? 0 : value.hashCode());
+		}
+	}
+}
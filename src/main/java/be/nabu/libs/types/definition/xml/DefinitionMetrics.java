@@ -0,0 +1,220 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.Element;
+
+/**
+ * The measurements of a single marshal or unmarshal call
+ * Timings are cumulative per phase, for example the binding time is the sum of all the attribute bindings in the definition
+ */
+public class DefinitionMetrics {
+
+	public enum Phase {
+		/**
+		 * The complete (un)marshal call
+		 */
+		TOTAL,
+		/**
+		 * Parsing the xml into a document (not measured separately when streaming)
+		 */
+		PARSE,
+		/**
+		 * Binding attributes to properties
+		 */
+		BIND,
+		/**
+		 * Resolving referenced definitions and supertypes
+		 */
+		RESOLVE,
+		/**
+		 * Resolving simple types (including the class loading)
+		 */
+		LOAD_CLASS,
+		/**
+		 * Building the output, when streaming this includes writing it
+		 */
+		SERIALIZE,
+		/**
+		 * Transforming the document to bytes, including the retab
+		 */
+		WRITE
+	}
+	
+	private String id;
+	private long [] times = new long[Phase.values().length];
+	private long bytes;
+	private int elements, resolverHits, resolverMisses;
+	private List<String> ignoredReferences = Collections.emptyList();
+	
+	DefinitionMetrics(String id) {
+		this.id = id;
+	}
+	
+	void add(Phase phase, long started) {
+		times[phase.ordinal()] += System.nanoTime() - started;
+	}
+	
+	void resolved(boolean found) {
+		if (found) {
+			resolverHits++;
+		}
+		else {
+			resolverMisses++;
+		}
+	}
+	
+	void element() {
+		elements++;
+	}
+	
+	void setId(String id) {
+		this.id = id;
+	}
+	
+	void setElements(int elements) {
+		this.elements = elements;
+	}
+	
+	void setIgnoredReferences(List<String> ignoredReferences) {
+		this.ignoredReferences = ignoredReferences == null ? Collections.<String>emptyList() : new ArrayList<String>(ignoredReferences);
+	}
+	
+	InputStream count(InputStream input) {
+		return new FilterInputStream(input) {
+			@Override
+			public int read() throws IOException {
+				int read = super.read();
+				if (read >= 0) {
+					bytes++;
+				}
+				return read;
+			}
+			@Override
+			public int read(byte [] buffer, int offset, int length) throws IOException {
+				int read = super.read(buffer, offset, length);
+				if (read > 0) {
+					bytes += read;
+				}
+				return read;
+			}
+		};
+	}
+	
+	OutputStream count(OutputStream output) {
+		return new FilterOutputStream(output) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytes++;
+			}
+			@Override
+			public void write(byte [] buffer, int offset, int length) throws IOException {
+				out.write(buffer, offset, length);
+				bytes += length;
+			}
+		};
+	}
+	
+	/**
+	 * Counts the elements that are part of the definition itself, referenced definitions are not included
+	 */
+	static int countElements(ComplexType type) {
+		int count = 0;
+		Map<ComplexType, Boolean> visited = new IdentityHashMap<ComplexType, Boolean>();
+		Deque<ComplexType> todo = new ArrayDeque<ComplexType>();
+		todo.push(type);
+		while (!todo.isEmpty()) {
+			ComplexType current = todo.pop();
+			if (visited.put(current, true) != null) {
+				continue;
+			}
+			for (Element<?> child : current) {
+				count++;
+				if (child.getType() instanceof ComplexType && !(child.getType() instanceof DefinedType)) {
+					todo.push((ComplexType) child.getType());
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * The id of the definition, if known
+	 */
+	public String getId() {
+		return id;
+	}
+	
+	/**
+	 * The cumulative time spent in the given phase in nanoseconds
+	 */
+	public long getTime(Phase phase) {
+		return times[phase.ordinal()];
+	}
+	
+	/**
+	 * The amount of bytes read or written
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+	
+	public int getElements() {
+		return elements;
+	}
+	
+	public int getResolverHits() {
+		return resolverHits;
+	}
+	
+	public int getResolverMisses() {
+		return resolverMisses;
+	}
+	
+	public List<String> getIgnoredReferences() {
+		return ignoredReferences;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[" + id + "] " + bytes + " bytes, " + elements + " elements, " + resolverHits + " resolved, " + resolverMisses + " unresolved");
+		for (Phase phase : Phase.values()) {
+			if (times[phase.ordinal()] > 0) {
+				builder.append(", ").append(phase.name().toLowerCase()).append("=").append(times[phase.ordinal()] / 1000).append("us");
+			}
+		}
+		return builder.toString();
+	}
+}
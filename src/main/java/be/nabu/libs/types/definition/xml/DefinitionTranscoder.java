@@ -0,0 +1,86 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import be.nabu.libs.types.api.MarshalException;
+
+/**
+ * Converts definitions between formats without building the types, this allows for example to compile the xml definitions to binary at build time
+ */
+public class DefinitionTranscoder {
+	
+	public static void toBinary(InputStream xml, OutputStream binary) throws IOException, ParseException {
+		try {
+			XMLStreamReader reader = XMLDefinitionUnmarshaller.toStreamReader(xml);
+			try {
+				transcode(new XMLDefinitionCursor(reader), new BinaryDefinitionWriter(binary));
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new MarshalException(e);
+		}
+	}
+	
+	public static void toXML(InputStream binary, OutputStream xml, String encoding, boolean prettyPrint) throws IOException, ParseException {
+		transcode(new BinaryDefinitionCursor(binary), new XMLDefinitionWriter(xml, encoding, true, prettyPrint));
+	}
+	
+	/**
+	 * Copies everything from the cursor to the writer, only enumerations have text content in a definition
+	 */
+	public static void transcode(DefinitionCursor cursor, DefinitionWriter writer) throws IOException, ParseException {
+		int depth = 0;
+		while (true) {
+			if (cursor.next()) {
+				writer.start(cursor.getName());
+				for (Map.Entry<String, String> attribute : cursor.getAttributes().entrySet()) {
+					writer.attribute(attribute.getKey(), attribute.getValue());
+				}
+				if (cursor.getName().equals("enumeration")) {
+					writer.text(cursor.getText());
+					writer.end();
+				}
+				else {
+					depth++;
+				}
+			}
+			// the end of the document
+			else if (depth == 0) {
+				break;
+			}
+			else {
+				writer.end();
+				depth--;
+			}
+		}
+		writer.flush();
+	}
+}
@@ -0,0 +1,33 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+
+/**
+ * The write-side counterpart of the definition cursor, the marshaller uses this to emit a definition without building a tree first
+ * Attributes must be set after start() and before any content is written for that element
+ */
+public interface DefinitionWriter {
+	public void start(String name) throws IOException;
+	public void attribute(String name, String value) throws IOException;
+	public void text(String text) throws IOException;
+	public void end() throws IOException;
+	public void flush() throws IOException;
+}
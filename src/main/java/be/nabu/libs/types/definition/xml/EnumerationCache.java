@@ -0,0 +1,251 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.nabu.libs.property.ValueUtils;
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.MarshalException;
+import be.nabu.libs.types.api.Marshallable;
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.properties.EnumerationProperty;
+import be.nabu.libs.types.properties.NameProperty;
+
+/**
+ * Marshals the enumerations of an element and remembers the result per simple type
+ * The marshallable of a type is only looked up once and when the same set of values is marshalled again for the same type (e.g. a shared code list) the previous result is reused
+ * A cached result is found by content: the values, the enumerations of the type and the properties (apart from the name) must be equal, it does not matter which list instance holds them
+ * The types are weakly referenced and looked up without locking, each type keeps a bounded amount of results
+ */
+public class EnumerationCache {
+
+	/**
+	 * The maximum amount of results we keep per type, once it is reached the results of that type are dropped
+	 */
+	private static final int MAX_FRAGMENTS = 64;
+	
+	@SuppressWarnings("rawtypes")
+	private static final EnumerationProperty ENUMERATION = new EnumerationProperty();
+	
+	private static EnumerationCache instance = new EnumerationCache();
+	
+	public static EnumerationCache getInstance() {
+		return instance;
+	}
+	
+	private ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+	private Map<IdentityKey, TypeEntry> types = new ConcurrentHashMap<IdentityKey, TypeEntry>();
+	
+	public List<String> marshal(SimpleType<?> type, List<?> enumerations, Value<?>...values) {
+		TypeEntry entry = getEntry(type);
+		List<?> typeEnumerations = (List<?>) ValueUtils.getValue(ENUMERATION, type.getProperties());
+		Value<?> [] relevant = withoutName(values);
+		// the lookup uses the lists as they are, they are only copied when a new result is stored
+		List<String> marshalled = entry.fragments.get(new FragmentKey(enumerations, typeEnumerations, relevant));
+		if (marshalled == null) {
+			marshalled = Collections.unmodifiableList(marshal(entry, type, enumerations, typeEnumerations, values));
+			if (entry.fragments.size() >= MAX_FRAGMENTS) {
+				entry.fragments.clear();
+			}
+			entry.fragments.put(new FragmentKey(new ArrayList<Object>(enumerations), typeEnumerations == null ? null : new ArrayList<Object>(typeEnumerations), relevant), marshalled);
+		}
+		return marshalled;
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private List<String> marshal(TypeEntry entry, SimpleType<?> type, List<?> enumerations, List<?> typeEnumerations, Value<?>...values) {
+		List<String> marshalled = new ArrayList<String>();
+		// don't marshal any enumerations that are part of the type itself
+		Set<?> excluded = typeEnumerations == null || typeEnumerations.isEmpty() ? Collections.emptySet() : new HashSet<Object>(typeEnumerations);
+		Marshallable marshallable = null;
+		for (Object object : enumerations) {
+			if (excluded.contains(object)) {
+				continue;
+			}
+			if (marshallable == null) {
+				marshallable = getMarshallable(entry, type);
+			}
+			marshalled.add(marshallable.marshal(object, values));
+		}
+		return marshalled;
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private Marshallable getMarshallable(TypeEntry entry, SimpleType<?> type) {
+		Marshallable marshallable = entry.marshallable == null ? null : entry.marshallable.get();
+		if (marshallable == null) {
+			SimpleType<?> current = type;
+			while(!(current instanceof Marshallable) && current.getSuperType() != null) {
+				current = (SimpleType<?>) current.getSuperType();
+			}
+			if (!(current instanceof Marshallable))
+				throw new MarshalException("Can not marshal enumeration values");
+			marshallable = (Marshallable) current;
+			// the marshallable is often the type itself, a strong reference would keep the key alive
+			entry.marshallable = new WeakReference<Marshallable>(marshallable);
+		}
+		return marshallable;
+	}
+	
+	private TypeEntry getEntry(SimpleType<?> type) {
+		TypeEntry entry = types.get(new IdentityKey(type, null));
+		if (entry == null) {
+			expunge();
+			TypeEntry created = new TypeEntry();
+			entry = types.putIfAbsent(new IdentityKey(type, queue), created);
+			if (entry == null) {
+				entry = created;
+			}
+		}
+		return entry;
+	}
+	
+	private static Value<?> [] withoutName(Value<?>...values) {
+		List<Value<?>> relevant = new ArrayList<Value<?>>(values.length);
+		for (Value<?> value : values) {
+			if (!NameProperty.getInstance().equals(value.getProperty()) && !(value.getProperty() instanceof EnumerationProperty)) {
+				relevant.add(value);
+			}
+		}
+		return relevant.toArray(new Value<?>[relevant.size()]);
+	}
+	
+	public void invalidate(SimpleType<?> type) {
+		types.remove(new IdentityKey(type, null));
+	}
+	
+	public void clear() {
+		types.clear();
+	}
+	
+	/**
+	 * Removes the entries whose type has been garbage collected, this also happens every time a new type is added
+	 */
+	public void purge() {
+		expunge();
+	}
+	
+	private void expunge() {
+		Reference<?> reference;
+		while ((reference = queue.poll()) != null) {
+			// the key is only equal to itself once the referent is gone
+			types.remove(reference);
+		}
+	}
+	
+	private static class TypeEntry {
+		@SuppressWarnings("rawtypes")
+		private volatile WeakReference<Marshallable> marshallable;
+		private Map<FragmentKey, List<String>> fragments = new ConcurrentHashMap<FragmentKey, List<String>>();
+	}
+	
+	/**
+	 * A weak key that compares its referent by identity, the hash code is kept so it can still be removed once the referent is collected
+	 */
+	private static class IdentityKey extends WeakReference<Object> {
+		private int hash;
+		
+		public IdentityKey(Object referent, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			this.hash = System.identityHashCode(referent);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object object) {
+			if (object == this) {
+				return true;
+			}
+			if (!(object instanceof IdentityKey)) {
+				return false;
+			}
+			Object referent = get();
+			return referent != null && referent == ((IdentityKey) object).get();
+		}
+	}
+	
+	/**
+	 * Identifies a result by content, stored keys hold copies of the lists so later modifications of the originals do not affect them
+	 */
+	private static class FragmentKey {
+		private List<?> enumerations, typeEnumerations;
+		private Value<?> [] values;
+		private int hashCode;
+		
+		public FragmentKey(List<?> enumerations, List<?> typeEnumerations, Value<?> [] values) {
+			this.enumerations = enumerations;
+			this.typeEnumerations = typeEnumerations;
+			this.values = values;
+			int hashCode = enumerations.hashCode();
+			hashCode = 31 * hashCode + (typeEnumerations == null ? 0 : typeEnumerations.hashCode());
+			for (Value<?> value : values) {
+				hashCode = 31 * hashCode + value.getProperty().hashCode();
+				hashCode = 31 * hashCode + (value.getValue() == null ? 0 : value.getValue().hashCode());
+			}
+			this.hashCode = hashCode;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof FragmentKey)) {
+				return false;
+			}
+			FragmentKey other = (FragmentKey) object;
+			return hashCode == other.hashCode
+				&& enumerations.equals(other.enumerations)
+				&& (typeEnumerations == null ? other.typeEnumerations == null : typeEnumerations.equals(other.typeEnumerations))
+				&& equals(values, other.values);
+		}
+		
+		private static boolean equals(Value<?> [] first, Value<?> [] second) {
+			if (first.length != second.length) {
+				return false;
+			}
+			for (int i = 0; i < first.length; i++) {
+				if (!first[i].getProperty().equals(second[i].getProperty())) {
+					return false;
+				}
+				Object firstValue = first[i].getValue(), secondValue = second[i].getValue();
+				if (firstValue == null ? secondValue != null : !firstValue.equals(secondValue)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.nabu.libs.types.api.ComplexType;
+
+/**
+ * Saves definitions to disk but only rewrites the files whose content actually changed
+ * For every file we remember the fingerprint of the type that was saved, as long as neither the type nor the file changed, nothing is marshalled at all
+ * The fingerprinter caches the digests of unchanged nested types so checking a large definition that did not change is cheap
+ * Changes to the file made by someone else are detected with its size and modification time, the first time a file is encountered its content is digested
+ * Files are written to a temporary file first and then moved in place so a crash never leaves a truncated definition behind
+ */
+public class IncrementalDefinitionWriter {
+
+	private static final String ALGORITHM = "SHA-256";
+	
+	private XMLDefinitionMarshaller marshaller;
+	private DefinitionFingerprinter fingerprinter = new DefinitionFingerprinter();
+	private Map<Path, Persisted> persisted = new ConcurrentHashMap<Path, Persisted>();
+	
+	public IncrementalDefinitionWriter(XMLDefinitionMarshaller marshaller) {
+		this.marshaller = marshaller;
+	}
+	
+	public Result save(Map<Path, ComplexType> definitions) throws IOException {
+		Result result = new Result();
+		for (Map.Entry<Path, ComplexType> entry : definitions.entrySet()) {
+			if (save(entry.getKey(), entry.getValue())) {
+				result.written.add(entry.getKey());
+			}
+			else {
+				result.skipped.add(entry.getKey());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns true if the file was (re)written, false if it already had the correct content
+	 */
+	public boolean save(Path file, ComplexType type) throws IOException {
+		Path key = file.toAbsolutePath().normalize();
+		byte [] fingerprint = getFingerprint(type);
+		BasicFileAttributes attributes = getAttributes(key);
+		Persisted current = persisted.get(key);
+		// someone else modified (or removed) the file, what we know about it no longer applies
+		if (current != null && !current.isFor(attributes)) {
+			current = null;
+		}
+		if (current != null && current.fingerprint != null && Arrays.equals(fingerprint, current.fingerprint)) {
+			return false;
+		}
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		marshaller.marshal(output, type);
+		byte [] content = output.toByteArray();
+		byte [] digest = newDigest().digest(content);
+		if (current == null && attributes != null) {
+			current = new Persisted(null, digest(key), attributes);
+		}
+		if (current != null && MessageDigest.isEqual(digest, current.digest)) {
+			persisted.put(key, new Persisted(fingerprint, digest, attributes));
+			return false;
+		}
+		write(key, content);
+		persisted.put(key, new Persisted(fingerprint, digest, getAttributes(key)));
+		return true;
+	}
+	
+	/**
+	 * The fingerprint has to reflect the settings of the marshaller, both what it writes and how it formats it
+	 */
+	private byte [] getFingerprint(ComplexType type) {
+		synchronized(fingerprinter) {
+			// only update the settings if they changed, every change clears the cache of the fingerprinter
+			if (fingerprinter.isResolveDefinitions() != marshaller.isResolveDefinitions()) {
+				fingerprinter.setResolveDefinitions(marshaller.isResolveDefinitions());
+			}
+			if (fingerprinter.isResolveExtensions() != marshaller.isResolveExtensions()) {
+				fingerprinter.setResolveExtensions(marshaller.isResolveExtensions());
+			}
+			if (fingerprinter.isIgnoreUnknownSuperTypes() != marshaller.isIgnoreUnknownSuperTypes()) {
+				fingerprinter.setIgnoreUnknownSuperTypes(marshaller.isIgnoreUnknownSuperTypes());
+			}
+			if (fingerprinter.getCodecs() != marshaller.getCodecs()) {
+				fingerprinter.setCodecs(marshaller.getCodecs());
+			}
+			byte [] fingerprint = fingerprinter.fingerprint(type);
+			byte [] formatting = new byte [] { (byte) (marshaller.isPrettyPrint() ? 1 : 0), (byte) (marshaller.isOmitXMLDeclaration() ? 1 : 0) };
+			byte [] result = Arrays.copyOf(fingerprint, fingerprint.length + formatting.length);
+			System.arraycopy(formatting, 0, result, fingerprint.length, formatting.length);
+			return result;
+		}
+	}
+	
+	private void write(Path file, byte [] content) throws IOException {
+		Path directory = file.getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+		// the temporary file must be in the same directory, a move across file systems is not atomic
+		Path temporary = Files.createTempFile(directory, "." + file.getFileName(), ".tmp");
+		try {
+			Files.write(temporary, content);
+			try {
+				Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+	
+	private static BasicFileAttributes getAttributes(Path file) throws IOException {
+		return Files.isRegularFile(file) ? Files.readAttributes(file, BasicFileAttributes.class) : null;
+	}
+	
+	private static byte [] digest(Path file) throws IOException {
+		MessageDigest messageDigest = newDigest();
+		InputStream input = Files.newInputStream(file);
+		try {
+			byte [] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) > 0) {
+				messageDigest.update(buffer, 0, read);
+			}
+		}
+		finally {
+			input.close();
+		}
+		return messageDigest.digest();
+	}
+	
+	/**
+	 * Forget what was persisted for the given file
+	 */
+	public void invalidate(Path file) {
+		persisted.remove(file.toAbsolutePath().normalize());
+	}
+	
+	public void clear() {
+		persisted.clear();
+	}
+	
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	public XMLDefinitionMarshaller getMarshaller() {
+		return marshaller;
+	}
+
+	/**
+	 * What we know about a file we wrote (or read), the fingerprint is only known if we saved the file ourselves
+	 * Modifications made within the resolution of the file system timestamps that do not change the size can not be detected
+	 */
+	private static class Persisted {
+		private byte [] fingerprint, digest;
+		private long size;
+		private FileTime modified;
+		
+		public Persisted(byte [] fingerprint, byte [] digest, BasicFileAttributes attributes) {
+			this.fingerprint = fingerprint;
+			this.digest = digest;
+			this.size = attributes.size();
+			this.modified = attributes.lastModifiedTime();
+		}
+		
+		public boolean isFor(BasicFileAttributes attributes) {
+			return attributes != null && attributes.size() == size && attributes.lastModifiedTime().equals(modified);
+		}
+	}
+	
+	public static class Result {
+		private List<Path> written = new ArrayList<Path>(), skipped = new ArrayList<Path>();
+		
+		public List<Path> getWritten() {
+			return Collections.unmodifiableList(written);
+		}
+		public List<Path> getSkipped() {
+			return Collections.unmodifiableList(skipped);
+		}
+	}
+}
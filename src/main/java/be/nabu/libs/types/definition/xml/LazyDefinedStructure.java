@@ -0,0 +1,127 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.text.ParseException;
+import java.util.Iterator;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.Group;
+import be.nabu.libs.types.api.MarshalException;
+import be.nabu.libs.types.api.Type;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+/**
+ * A definition of which only the root (its properties and supertype) is unmarshalled up front
+ * The children are only unmarshalled the first time they are accessed, until then we keep the original bytes
+ * Every accessor of the structure materializes it first, so it can not be observed in a half unmarshalled state
+ * Note that children that are added before the first access end up before the unmarshalled ones
+ */
+public class LazyDefinedStructure extends DefinedStructure {
+
+	private XMLDefinitionUnmarshaller unmarshaller;
+	private byte [] content;
+	private volatile boolean materialized;
+	/**
+	 * While the root itself is being unmarshalled (e.g. binding its attributes) the accessors should not trigger the children
+	 */
+	private volatile boolean rootUnmarshalled;
+	private boolean materializing;
+	/**
+	 * If the children could not be unmarshalled, every access throws the original exception
+	 */
+	private RuntimeException failure;
+	
+	LazyDefinedStructure(XMLDefinitionUnmarshaller unmarshaller, byte [] content) {
+		this.unmarshaller = unmarshaller;
+		this.content = content;
+	}
+	
+	void setRootUnmarshalled() {
+		rootUnmarshalled = true;
+	}
+	
+	private void materialize() {
+		if (!materialized && rootUnmarshalled) {
+			synchronized(this) {
+				// a failed materialization is not retried, the children might be partially added
+				if (failure != null) {
+					throw failure;
+				}
+				// the unmarshalling itself accesses the children as well
+				if (materialized || materializing) {
+					return;
+				}
+				materializing = true;
+				try {
+					unmarshaller.unmarshalContent(content, this);
+					content = null;
+					unmarshaller = null;
+					materialized = true;
+				}
+				catch (ParseException e) {
+					failure = new MarshalException(e);
+					throw failure;
+				}
+				catch (RuntimeException e) {
+					failure = e;
+					throw e;
+				}
+				finally {
+					materializing = false;
+				}
+			}
+		}
+	}
+	
+	public boolean isMaterialized() {
+		return materialized;
+	}
+
+	@Override
+	public Iterator<Element<?>> iterator() {
+		materialize();
+		return super.iterator();
+	}
+
+	@Override
+	public Element<?> get(String path) {
+		materialize();
+		return super.get(path);
+	}
+
+	@Override
+	public Group[] getGroups() {
+		materialize();
+		return super.getGroups();
+	}
+
+	@Override
+	public Type getSuperType() {
+		materialize();
+		return super.getSuperType();
+	}
+
+	@Override
+	public Value<?>[] getProperties() {
+		materialize();
+		return super.getProperties();
+	}
+}
@@ -0,0 +1,232 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.nabu.libs.converter.ConverterFactory;
+import be.nabu.libs.converter.api.Converter;
+import be.nabu.libs.property.api.Property;
+import be.nabu.libs.types.base.StringMapCollectionHandlerProvider;
+import be.nabu.libs.types.properties.CollectionHandlerProviderProperty;
+import be.nabu.libs.types.properties.EnumerationProperty;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+
+/**
+ * Resolves the codec for a property once and caches it so (un)marshalling an attribute does not go through the generic converter dispatch every time
+ * Common value types have a dedicated codec, anything else falls back to the converter
+ * The specialized codecs also fall back to the converter for values they can not handle themselves so the result is the same as before
+ */
+public class PropertyCodecs {
+
+	/**
+	 * Returned for properties that are never written as an attribute
+	 */
+	public static final PropertyCodec NOT_WRITTEN = new PropertyCodec() {
+		@Override
+		public String format(Object value) {
+			return null;
+		}
+		@Override
+		public Object parse(String value) throws ParseException {
+			throw new ParseException("This property can not be set as an attribute: " + value, 0);
+		}
+	};
+	
+	/**
+	 * The maximum amount of parsed strings that is remembered for an enum property
+	 */
+	private static final int MAX_PARSED = 64;
+	
+	private static PropertyCodecs instance = new PropertyCodecs(ConverterFactory.getInstance().getConverter());
+	
+	public static PropertyCodecs getInstance() {
+		return instance;
+	}
+	
+	private Converter converter;
+	/**
+	 * Property instances are often created on the fly so they are indexed by their class and name rather than the instance
+	 */
+	private ConcurrentHashMap<Class<?>, Map<String, PropertyCodec>> codecs = new ConcurrentHashMap<Class<?>, Map<String, PropertyCodec>>();
+	
+	public PropertyCodecs(Converter converter) {
+		this.converter = converter;
+	}
+	
+	public PropertyCodec getCodec(Property<?> property) {
+		Map<String, PropertyCodec> byName = codecs.get(property.getClass());
+		if (byName == null) {
+			codecs.putIfAbsent(property.getClass(), new ConcurrentHashMap<String, PropertyCodec>());
+			byName = codecs.get(property.getClass());
+		}
+		PropertyCodec codec = byName.get(property.getName());
+		if (codec == null) {
+			codec = newCodec(property);
+			byName.put(property.getName(), codec);
+		}
+		return codec;
+	}
+	
+	protected PropertyCodec newCodec(Property<?> property) {
+		final Class<?> valueClass = property.getValueClass();
+		if (property instanceof EnumerationProperty) {
+			return NOT_WRITTEN;
+		}
+		else if (MaxOccursProperty.getInstance().equals(property)) {
+			return new PropertyCodec() {
+				@Override
+				public String format(Object value) {
+					return value.equals(0) ? "unbounded" : value.toString();
+				}
+				@Override
+				public Object parse(String value) {
+					return value.equals("unbounded") ? 0 : Integer.valueOf(value);
+				}
+			};
+		}
+		else if (CollectionHandlerProviderProperty.getInstance().equals(property)) {
+			return new ConverterCodec(valueClass) {
+				@Override
+				public String format(Object value) {
+					return value instanceof StringMapCollectionHandlerProvider ? "stringMap" : super.format(value);
+				}
+				@Override
+				public Object parse(String value) throws ParseException {
+					if ("stringMap".equals(value)) {
+						return new StringMapCollectionHandlerProvider();
+					}
+					throw new ParseException("Unknown collection handler provider", 0);
+				}
+			};
+		}
+		else if (String.class.isAssignableFrom(valueClass)) {
+			return new PropertyCodec() {
+				@Override
+				public String format(Object value) {
+					return (String) value;
+				}
+				@Override
+				public Object parse(String value) {
+					return value;
+				}
+			};
+		}
+		else if (Integer.class.equals(valueClass) || Long.class.equals(valueClass)) {
+			final boolean isInteger = Integer.class.equals(valueClass);
+			return new ConverterCodec(valueClass) {
+				@Override
+				public String format(Object value) {
+					return valueClass.isInstance(value) ? value.toString() : super.format(value);
+				}
+				@Override
+				public Object parse(String value) throws ParseException {
+					try {
+						return isInteger ? Integer.valueOf(value) : (Object) Long.valueOf(value);
+					}
+					catch (NumberFormatException e) {
+						return super.parse(value);
+					}
+				}
+			};
+		}
+		else if (Boolean.class.equals(valueClass)) {
+			return new ConverterCodec(valueClass) {
+				@Override
+				public String format(Object value) {
+					return value instanceof Boolean ? value.toString() : super.format(value);
+				}
+				@Override
+				public Object parse(String value) throws ParseException {
+					if ("true".equals(value)) {
+						return Boolean.TRUE;
+					}
+					else if ("false".equals(value)) {
+						return Boolean.FALSE;
+					}
+					return super.parse(value);
+				}
+			};
+		}
+		else if (valueClass.isEnum()) {
+			// the converter decides the textual form (as it always did), we only remember its answer for each constant
+			final Map<Object, String> formatted = new ConcurrentHashMap<Object, String>();
+			final Map<String, Object> parsed = new ConcurrentHashMap<String, Object>();
+			return new ConverterCodec(valueClass) {
+				@Override
+				public String format(Object value) {
+					String result = formatted.get(value);
+					if (result == null) {
+						result = super.format(value);
+						if (result != null && value instanceof Enum) {
+							formatted.put(value, result);
+						}
+					}
+					return result;
+				}
+				@Override
+				public Object parse(String value) throws ParseException {
+					Object result = parsed.get(value);
+					if (result == null) {
+						result = super.parse(value);
+						// only a limited amount of strings map onto the constants
+						if (result != null && parsed.size() < MAX_PARSED) {
+							parsed.put(value, result);
+						}
+					}
+					return result;
+				}
+			};
+		}
+		return new ConverterCodec(valueClass);
+	}
+	
+	public void clear() {
+		codecs.clear();
+	}
+	
+	public Converter getConverter() {
+		return converter;
+	}
+	
+	private class ConverterCodec implements PropertyCodec {
+		private Class<?> valueClass;
+		
+		public ConverterCodec(Class<?> valueClass) {
+			this.valueClass = valueClass;
+		}
+		
+		@Override
+		public String format(Object value) {
+			try {
+				return converter.convert(value, String.class);
+			}
+			catch (ClassCastException e) {
+				return null;
+			}
+		}
+		
+		@Override
+		public Object parse(String value) throws ParseException {
+			return converter.convert(value, valueClass);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.Type;
+
+/**
+ * Caches an indexed view on the property values of a type so checking whether an element property is inherited from its type does not require a scan
+ * The view of a type is rebuilt as soon as its property values change
+ */
+public class PropertyViewIndex {
+
+	private static PropertyViewIndex instance = new PropertyViewIndex();
+	
+	public static PropertyViewIndex getInstance() {
+		return instance;
+	}
+	
+	private Map<Type, PropertyView> views = Collections.synchronizedMap(new WeakHashMap<Type, PropertyView>());
+	
+	public PropertyView getView(Type type) {
+		Value<?> [] properties = type.getProperties();
+		PropertyView view = views.get(type);
+		if (view == null || !view.isFor(properties)) {
+			view = new PropertyView(properties);
+			views.put(type, view);
+		}
+		return view;
+	}
+	
+	public void invalidate(Type type) {
+		views.remove(type);
+	}
+	
+	public void clear() {
+		views.clear();
+	}
+	
+	/**
+	 * An immutable view on a set of property values, indexed by property name
+	 */
+	public static class PropertyView {
+		private Value<?> [] properties;
+		private Map<String, Value<?>> index = new HashMap<String, Value<?>>();
+		
+		PropertyView(Value<?> [] properties) {
+			this.properties = properties;
+			for (Value<?> value : properties) {
+				if (!index.containsKey(value.getProperty().getName())) {
+					index.put(value.getProperty().getName(), value);
+				}
+			}
+		}
+		
+		boolean isFor(Value<?> [] current) {
+			if (current.length != properties.length) {
+				return false;
+			}
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] != properties[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * Returns the value for the same property or null if there is none
+		 */
+		public Value<?> get(Value<?> value) {
+			Value<?> candidate = index.get(value.getProperty().getName());
+			// most element properties (name, minOccurs...) are not set on the type at all
+			if (candidate == null || candidate.getProperty().equals(value.getProperty())) {
+				return candidate;
+			}
+			// only different properties with the same name (exceedingly rare) need a scan
+			for (Value<?> property : properties) {
+				if (property.getProperty().equals(value.getProperty())) {
+					return property;
+				}
+			}
+			return null;
+		}
+		
+		/**
+		 * Whether the same property is present with an equal value
+		 */
+		public boolean contains(Value<?> value) {
+			Value<?> candidate = get(value);
+			if (candidate == null) {
+				return false;
+			}
+			Object candidateValue = candidate.getValue();
+			Object currentValue = value.getValue();
+			return candidateValue == null ? currentValue == null : candidateValue.equals(currentValue);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The JAXP transformer only supports a numeric indentation width, this rewrites the leading spaces of every line to tabs (4 spaces per tab) while the content streams through
+ * Line endings are normalized to "\n", call finish() once everything is written to write out what is still pending
+ */
+public class RetabWriter extends Writer {
+
+	private static final int TAB_WIDTH = 4;
+	
+	private Writer parent;
+	private char [] buffer = new char[1024];
+	private int length;
+	/**
+	 * Whether we are still in the leading whitespace of a line
+	 */
+	private boolean lineStart = true;
+	/**
+	 * The amount of leading spaces we have seen on the current line
+	 */
+	private int spaces;
+	/**
+	 * A carriage return is only dropped if it is followed by a line feed
+	 */
+	private boolean carriageReturn;
+	
+	public RetabWriter(Writer parent) {
+		this.parent = parent;
+	}
+	
+	@Override
+	public void write(char [] characters, int offset, int length) throws IOException {
+		for (int i = offset; i < offset + length; i++) {
+			write(characters[i]);
+		}
+	}
+	
+	@Override
+	public void write(int character) throws IOException {
+		if (carriageReturn) {
+			carriageReturn = false;
+			if (character == '\n') {
+				newLine();
+				return;
+			}
+			content('\r');
+		}
+		if (character == '\r') {
+			carriageReturn = true;
+		}
+		else if (character == '\n') {
+			indent();
+			newLine();
+		}
+		else if (lineStart && character == ' ') {
+			spaces++;
+		}
+		else {
+			content((char) character);
+		}
+	}
+	
+	private void newLine() throws IOException {
+		put('\n');
+		lineStart = true;
+		spaces = 0;
+	}
+	
+	private void content(char character) throws IOException {
+		indent();
+		put(character);
+	}
+	
+	private void indent() throws IOException {
+		if (lineStart) {
+			lineStart = false;
+			for (int i = 0; i < spaces / TAB_WIDTH; i++) {
+				put('\t');
+			}
+			for (int i = 0; i < spaces % TAB_WIDTH; i++) {
+				put(' ');
+			}
+		}
+	}
+	
+	private void put(char character) throws IOException {
+		if (length == buffer.length) {
+			flushBuffer();
+		}
+		buffer[length++] = character;
+	}
+	
+	private void flushBuffer() throws IOException {
+		parent.write(buffer, 0, length);
+		length = 0;
+	}
+	
+	/**
+	 * Writes the pending indentation and carriage return (if any), they can only be written once we know nothing follows
+	 */
+	public void finish() throws IOException {
+		if (carriageReturn) {
+			carriageReturn = false;
+			content('\r');
+		}
+		indent();
+		flush();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		parent.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		parent.close();
+	}
+}
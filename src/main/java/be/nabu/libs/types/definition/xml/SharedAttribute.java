@@ -0,0 +1,62 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.base.AttributeImpl;
+
+/**
+ * An attribute that only holds its own name, all other properties are shared with identical declarations
+ * The first time a property is set, the shared properties are copied into the element so the change does not affect the others
+ */
+public class SharedAttribute<T> extends AttributeImpl<T> {
+
+	private SharedPropertiesHolder shared;
+	
+	public SharedAttribute(SimpleType<T> type, ComplexType parent, SharedProperties shared, Value<?>...values) {
+		super(type, parent, values);
+		this.shared = new SharedPropertiesHolder(shared);
+	}
+	
+	@Override
+	public Value<?> [] getProperties() {
+		// the super constructor sets the own properties before the holder exists
+		if (shared == null) {
+			return super.getProperties();
+		}
+		return shared.merge(super.getProperties());
+	}
+
+	@Override
+	public void setProperty(Value<?>...values) {
+		synchronized(this) {
+			Value<?> [] copied = shared == null ? null : shared.unshare();
+			if (copied != null) {
+				super.setProperty(copied);
+			}
+		}
+		super.setProperty(values);
+	}
+	
+	public boolean isShared() {
+		return shared.isShared();
+	}
+}
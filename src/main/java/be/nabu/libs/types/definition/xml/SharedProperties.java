@@ -0,0 +1,116 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.SimpleType;
+
+/**
+ * An immutable set of element properties (apart from the name) that can be shared between structurally identical element declarations
+ */
+public class SharedProperties {
+	
+	private SimpleType<?> type;
+	private boolean attribute;
+	private Value<?> [] values;
+	private int hashCode;
+	
+	SharedProperties(SimpleType<?> type, boolean attribute, Value<?>...values) {
+		this.type = type;
+		this.attribute = attribute;
+		this.values = values;
+		int hashCode = 31 * System.identityHashCode(type) + (attribute ? 1 : 0);
+		for (Value<?> value : values) {
+			// the order of the values is irrelevant
+			hashCode += value.getProperty().hashCode() ^ (value.getValue() == null ? 0 : value.getValue().hashCode());
+		}
+		this.hashCode = hashCode;
+	}
+	
+	public SimpleType<?> getType() {
+		return type;
+	}
+
+	public boolean isAttribute() {
+		return attribute;
+	}
+
+	public List<Value<?>> getValues() {
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+	
+	/**
+	 * Merges the values that are specific to an element with the shared ones, the specific values take precedence
+	 */
+	Value<?> [] merge(Value<?>...own) {
+		List<Value<?>> merged = new ArrayList<Value<?>>(own.length + values.length);
+		merged.addAll(Arrays.asList(own));
+		for (Value<?> value : values) {
+			if (indexOf(own, value) < 0) {
+				merged.add(value);
+			}
+		}
+		return merged.toArray(new Value<?>[merged.size()]);
+	}
+	
+	Value<?> [] toArray() {
+		return values.clone();
+	}
+	
+	private static int indexOf(Value<?> [] values, Value<?> value) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i].getProperty().equals(value.getProperty())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof SharedProperties)) {
+			return false;
+		}
+		SharedProperties other = (SharedProperties) object;
+		if (type != other.type || attribute != other.attribute || values.length != other.values.length) {
+			return false;
+		}
+		for (Value<?> value : values) {
+			int index = indexOf(other.values, value);
+			if (index < 0) {
+				return false;
+			}
+			Object otherValue = other.values[index].getValue();
+			if (value.getValue() == null ? otherValue != null : !value.getValue().equals(otherValue)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+}
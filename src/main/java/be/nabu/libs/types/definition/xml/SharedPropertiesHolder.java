@@ -0,0 +1,58 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import be.nabu.libs.property.api.Value;
+
+/**
+ * The sharing state of a shared element or attribute
+ * The merged properties are not kept, storing an array per element would cost as much memory as not sharing at all
+ */
+class SharedPropertiesHolder {
+
+	private volatile SharedProperties shared;
+	
+	SharedPropertiesHolder(SharedProperties shared) {
+		this.shared = shared;
+	}
+	
+	/**
+	 * Merges the own properties of the element with the shared ones, if the element no longer shares its own properties are returned as is
+	 */
+	Value<?> [] merge(Value<?>...own) {
+		SharedProperties shared = this.shared;
+		return shared == null ? own : shared.merge(own);
+	}
+	
+	/**
+	 * Stops sharing, returns the shared values that have to be copied into the element or null if it was not sharing anymore
+	 */
+	synchronized Value<?> [] unshare() {
+		if (shared == null) {
+			return null;
+		}
+		Value<?> [] values = shared.toArray();
+		shared = null;
+		return values;
+	}
+	
+	boolean isShared() {
+		return shared != null;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.properties.NameProperty;
+
+/**
+ * Hands out shared property sets for element declarations, identical declarations get the same instance
+ * Entries are weakly referenced so they disappear once no element uses them anymore
+ */
+public class SharedPropertiesPool {
+
+	private static SharedPropertiesPool instance = new SharedPropertiesPool();
+	
+	public static SharedPropertiesPool getInstance() {
+		return instance;
+	}
+	
+	private Map<SharedProperties, WeakReference<SharedProperties>> pool = new WeakHashMap<SharedProperties, WeakReference<SharedProperties>>();
+	
+	/**
+	 * Returns the shared set for all the given values except the name
+	 */
+	public SharedProperties share(SimpleType<?> type, boolean attribute, List<Value<?>> values) {
+		List<Value<?>> shared = new ArrayList<Value<?>>(values.size());
+		for (Value<?> value : values) {
+			if (!NameProperty.getInstance().equals(value.getProperty())) {
+				shared.add(value);
+			}
+		}
+		SharedProperties properties = new SharedProperties(type, attribute, shared.toArray(new Value<?>[shared.size()]));
+		synchronized(pool) {
+			WeakReference<SharedProperties> reference = pool.get(properties);
+			SharedProperties existing = reference == null ? null : reference.get();
+			if (existing != null) {
+				return existing;
+			}
+			pool.put(properties, new WeakReference<SharedProperties>(properties));
+			return properties;
+		}
+	}
+	
+	public int getSize() {
+		synchronized(pool) {
+			return pool.size();
+		}
+	}
+	
+	public void clear() {
+		synchronized(pool) {
+			pool.clear();
+		}
+	}
+}
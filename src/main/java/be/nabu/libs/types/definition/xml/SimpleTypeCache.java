@@ -0,0 +1,113 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.api.SimpleTypeWrapper;
+
+/**
+ * Caches the resolution of type names to simple types, including the names that can not be resolved
+ * The entries are kept per classloader so a hot deployed module that is unloaded does not stay in memory through this cache
+ * The resolved types are only weakly referenced as they in turn reference the classloader, a soft reference would keep it around until there is memory pressure
+ * A cache should only ever be used with a single simple type wrapper
+ */
+public class SimpleTypeCache {
+	
+	private static final Object UNKNOWN = new Object();
+	private static final Object UNWRAPPABLE = new Object();
+	
+	private static SimpleTypeCache instance = new SimpleTypeCache();
+	
+	public static SimpleTypeCache getInstance() {
+		return instance;
+	}
+	
+	private Map<ClassLoader, Map<String, Object>> entries = new WeakHashMap<ClassLoader, Map<String, Object>>();
+	
+	/**
+	 * Returns the simple type for the given name or null if the class exists but can not be wrapped
+	 * Throws a ClassNotFoundException if the class does not exist in the given classloader
+	 */
+	@SuppressWarnings("unchecked")
+	public SimpleType<?> resolve(SimpleTypeWrapper wrapper, ClassLoader classLoader, String typeName) throws ClassNotFoundException {
+		Map<String, Object> resolved = getEntries(classLoader);
+		Object cached = resolved.get(typeName);
+		if (cached == UNKNOWN) {
+			throw new ClassNotFoundException(typeName);
+		}
+		else if (cached == UNWRAPPABLE) {
+			return null;
+		}
+		else if (cached != null) {
+			SimpleType<?> type = ((WeakReference<SimpleType<?>>) cached).get();
+			if (type != null) {
+				return type;
+			}
+		}
+		SimpleType<?> type = wrapper.getByName(typeName);
+		if (type == null) {
+			try {
+				type = wrapper.wrap(Class.forName(typeName, true, classLoader));
+			}
+			catch (ClassNotFoundException e) {
+				resolved.put(typeName, UNKNOWN);
+				throw e;
+			}
+		}
+		resolved.put(typeName, type == null ? UNWRAPPABLE : new WeakReference<SimpleType<?>>(type));
+		return type;
+	}
+	
+	private Map<String, Object> getEntries(ClassLoader classLoader) {
+		synchronized(entries) {
+			Map<String, Object> resolved = entries.get(classLoader);
+			if (resolved == null) {
+				resolved = new ConcurrentHashMap<String, Object>();
+				entries.put(classLoader, resolved);
+			}
+			return resolved;
+		}
+	}
+	
+	/**
+	 * The amount of classloaders that still have entries
+	 */
+	int getSize() {
+		synchronized(entries) {
+			return entries.size();
+		}
+	}
+	
+	public void clear(ClassLoader classLoader) {
+		synchronized(entries) {
+			entries.remove(classLoader);
+		}
+	}
+	
+	public void clear() {
+		synchronized(entries) {
+			entries.clear();
+		}
+	}
+}
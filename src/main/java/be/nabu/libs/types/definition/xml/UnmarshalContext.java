@@ -0,0 +1,104 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import be.nabu.libs.types.api.ComplexType;
+
+/**
+ * Holds the state of a single unmarshal call, this allows one configured unmarshaller to be shared by any number of threads
+ * A context should not be reused across calls
+ */
+public class UnmarshalContext {
+	
+	/**
+	 * The id of the definition that is being unmarshalled, references to this id are resolved to the root instead of the resolver
+	 */
+	private String id;
+	/**
+	 * The root of the definition that is being unmarshalled
+	 */
+	private ComplexType root;
+	/**
+	 * The references that could not be resolved and were left out because unknown references are ignored
+	 */
+	private List<String> ignoredReferences = new ArrayList<String>();
+	/**
+	 * Problems that did not stop the unmarshalling, like unresolvable supertypes
+	 */
+	private List<String> diagnostics = new ArrayList<String>();
+	/**
+	 * Only set if the unmarshaller has a listener
+	 */
+	private DefinitionMetrics metrics;
+	/**
+	 * The session this call is part of (if any), references to definitions of the session are resolved through its forward-reference table
+	 */
+	private UnmarshalSession session;
+	
+	public UnmarshalContext() {
+		// auto construct
+	}
+	
+	public UnmarshalContext(String id) {
+		this.id = id;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public ComplexType getRoot() {
+		return root;
+	}
+
+	void setRoot(ComplexType root) {
+		this.root = root;
+	}
+
+	public List<String> getIgnoredReferences() {
+		return ignoredReferences;
+	}
+
+	public List<String> getDiagnostics() {
+		return diagnostics;
+	}
+
+	public DefinitionMetrics getMetrics() {
+		return metrics;
+	}
+
+	void setMetrics(DefinitionMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public UnmarshalSession getSession() {
+		return session;
+	}
+
+	void setSession(UnmarshalSession session) {
+		this.session = session;
+	}
+}
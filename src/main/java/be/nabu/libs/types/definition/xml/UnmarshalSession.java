@@ -0,0 +1,184 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+/**
+ * Loads definitions that reference one another (possibly in cycles) in a single pass without going through the resolver
+ * The session keeps a forward-reference table: the first time a definition of the session is referenced, an empty structure is created for it and the definition is queued
+ * Everyone that references it gets that structure, which is filled in once the definition has its turn, so no load is ever nested in another
+ * If a definition can not be loaded, the definitions that (indirectly) reference it are reported as failures as well
+ * A session is meant to be used by a single thread, the unmarshaller can be shared with other sessions
+ */
+public class UnmarshalSession {
+
+	private XMLDefinitionUnmarshaller unmarshaller;
+	private Map<String, XMLDefinitionBulkLoader.DefinitionSource> sources;
+	/**
+	 * Every definition of the session that was referenced so far, whether it is loaded, being loaded or still pending
+	 */
+	private Map<String, DefinedStructure> structures = new HashMap<String, DefinedStructure>();
+	private Deque<String> pending = new ArrayDeque<String>();
+	private Map<String, Exception> failures = new LinkedHashMap<String, Exception>();
+	/**
+	 * For each definition of the session, the definitions that reference it
+	 */
+	private Map<String, Set<String>> referencedBy = new HashMap<String, Set<String>>();
+	/**
+	 * The definition that is being unmarshalled
+	 */
+	private String current;
+	
+	/**
+	 * The unmarshaller is used for all the definitions in the session, references outside of the session go to its resolver
+	 */
+	public UnmarshalSession(XMLDefinitionUnmarshaller unmarshaller, Map<String, XMLDefinitionBulkLoader.DefinitionSource> sources) {
+		this.unmarshaller = unmarshaller;
+		this.sources = sources;
+	}
+	
+	/**
+	 * Loads the definition and everything in the session it (indirectly) references, returns null if the session does not know the id
+	 */
+	public ComplexType load(String id) throws IOException, ParseException {
+		DefinedStructure structure = reference(id);
+		if (structure == null) {
+			return null;
+		}
+		drain();
+		Exception failure = failures.get(id);
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		else if (failure instanceof ParseException) {
+			throw (ParseException) failure;
+		}
+		else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		return structure;
+	}
+	
+	/**
+	 * Loads all the definitions in the session, the ones that failed are in the failures
+	 */
+	public Map<String, ComplexType> loadAll() {
+		for (String id : sources.keySet()) {
+			reference(id);
+		}
+		drain();
+		Map<String, ComplexType> types = new LinkedHashMap<String, ComplexType>();
+		for (String id : sources.keySet()) {
+			if (!failures.containsKey(id)) {
+				types.put(id, structures.get(id));
+			}
+		}
+		return types;
+	}
+	
+	/**
+	 * Returns the structure for a definition of the session, queueing it if it was not referenced before
+	 * Returns null if the definition is not part of the session
+	 */
+	DefinedType resolve(String id) {
+		DefinedStructure structure = reference(id);
+		if (structure != null && current != null && !current.equals(id)) {
+			Set<String> referencing = referencedBy.get(id);
+			if (referencing == null) {
+				referencing = new LinkedHashSet<String>();
+				referencedBy.put(id, referencing);
+			}
+			referencing.add(current);
+		}
+		return structure;
+	}
+	
+	private DefinedStructure reference(String id) {
+		DefinedStructure structure = structures.get(id);
+		if (structure == null && sources.containsKey(id)) {
+			structure = new DefinedStructure();
+			structure.setId(id);
+			structures.put(id, structure);
+			pending.add(id);
+		}
+		return structure;
+	}
+	
+	private void drain() {
+		while (!pending.isEmpty()) {
+			String id = pending.poll();
+			UnmarshalContext context = new UnmarshalContext(id);
+			context.setSession(this);
+			current = id;
+			try (InputStream input = sources.get(id).open()) {
+				unmarshaller.unmarshal(input, structures.get(id), context);
+			}
+			catch (Exception e) {
+				// the structure may be partially filled at this point and whoever references it already has it, so the failure is propagated to them instead
+				failures.put(id, e);
+			}
+			finally {
+				current = null;
+			}
+		}
+		propagateFailures();
+	}
+	
+	/**
+	 * A definition that references a failed definition contains an incomplete structure, so it failed as well
+	 */
+	private void propagateFailures() {
+		Deque<String> failed = new ArrayDeque<String>(failures.keySet());
+		while (!failed.isEmpty()) {
+			String id = failed.poll();
+			Set<String> referencing = referencedBy.get(id);
+			if (referencing != null) {
+				for (String dependent : referencing) {
+					if (!failures.containsKey(dependent)) {
+						failures.put(dependent, new ParseException("The definition '" + dependent + "' references '" + id + "' which could not be loaded", 0));
+						failed.add(dependent);
+					}
+				}
+			}
+		}
+	}
+	
+	public Map<String, Exception> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+
+	public XMLDefinitionUnmarshaller getUnmarshaller() {
+		return unmarshaller;
+	}
+}
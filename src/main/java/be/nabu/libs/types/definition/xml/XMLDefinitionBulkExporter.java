@@ -0,0 +1,389 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import be.nabu.libs.types.api.ComplexType;
+
+/**
+ * Marshals a large set of definitions concurrently, a failing definition is reported in the result but does not stop the others
+ * The number of definitions that are marshalled at the same time is limited, this also limits how many pending definitions are kept in memory
+ * If no executor is given, a fixed pool of platform threads is created for the duration of the export
+ * Files are written to a temporary file next to the target and only moved in place once they are complete (and synced), a failed export never leaves a truncated file
+ * If the export is interrupted, the definitions in flight are finished first and the files that were not yet moved in place are removed
+ */
+public class XMLDefinitionBulkExporter {
+
+	public interface DefinitionTarget<T> {
+		public OutputStream open(T key) throws IOException;
+	}
+	
+	public static class Result<T> {
+		private List<T> exported = new ArrayList<T>();
+		private Map<T, Exception> failures = new ConcurrentHashMap<T, Exception>();
+		
+		/**
+		 * The definitions that were exported successfully, in the order they were offered
+		 */
+		public List<T> getExported() {
+			return Collections.unmodifiableList(exported);
+		}
+		public Map<T, Exception> getFailures() {
+			return failures;
+		}
+		private void complete(Collection<T> keys) {
+			for (T key : keys) {
+				if (!failures.containsKey(key)) {
+					exported.add(key);
+				}
+			}
+		}
+	}
+	
+	private interface Exporter<T> {
+		public void export(T key, ComplexType type) throws IOException;
+	}
+	
+	private XMLDefinitionMarshaller marshaller;
+	private ExecutorService executor;
+	/**
+	 * How many definitions are marshalled at the same time, marshalling is cpu bound so there is little use in going beyond the amount of cores
+	 */
+	private int concurrency = Runtime.getRuntime().availableProcessors();
+	/**
+	 * Whether exported files are synced to disk before the export returns
+	 */
+	private boolean sync = true;
+	/**
+	 * Files are synced in batches of this size, syncing every file as it is written stalls the marshalling threads on the disk
+	 */
+	private int syncBatchSize = 128;
+	
+	public XMLDefinitionBulkExporter(XMLDefinitionMarshaller marshaller) {
+		this(marshaller, null);
+	}
+	
+	/**
+	 * The executor is not shut down by the exporter
+	 */
+	public XMLDefinitionBulkExporter(XMLDefinitionMarshaller marshaller, ExecutorService executor) {
+		this.marshaller = marshaller;
+		this.executor = executor;
+	}
+	
+	/**
+	 * Exports the definitions to the given files, missing directories are created
+	 */
+	public Result<Path> export(Map<Path, ComplexType> definitions) throws InterruptedException {
+		final Result<Path> result = new Result<Path>();
+		final SyncBatch batch = new SyncBatch(result);
+		boolean completed = false;
+		try {
+			exportFiles(definitions, result, batch);
+			completed = true;
+		}
+		finally {
+			// no task is running anymore at this point, if we were interrupted the files that are not yet in place are removed
+			if (completed) {
+				batch.flush();
+			}
+			else {
+				batch.discard();
+			}
+		}
+		result.complete(definitions.keySet());
+		return result;
+	}
+	
+	private void exportFiles(Map<Path, ComplexType> definitions, Result<Path> result, final SyncBatch batch) throws InterruptedException {
+		run(definitions, result, new Exporter<Path>() {
+			@Override
+			public void export(Path file, ComplexType type) throws IOException {
+				Path directory = file.toAbsolutePath().getParent();
+				Files.createDirectories(directory);
+				// the temporary file must be in the same directory, a move across file systems is not atomic
+				PendingFile pending = new PendingFile(file, Files.createTempFile(directory, "." + file.getFileName(), ".tmp"));
+				try {
+					pending.channel = FileChannel.open(pending.temporary, StandardOpenOption.WRITE);
+					// the stream is only flushed, closing it would close the channel before it is synced
+					OutputStream output = new BufferedOutputStream(Channels.newOutputStream(pending.channel), 8192);
+					marshaller.marshal(output, type);
+					output.flush();
+				}
+				catch (IOException | RuntimeException e) {
+					pending.discard();
+					throw e;
+				}
+				if (sync) {
+					batch.add(pending);
+				}
+				else {
+					pending.commit();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Exports the definitions to the streams opened by the target, the streams are closed once the definition is written
+	 */
+	public <T> Result<T> export(Map<T, ComplexType> definitions, final DefinitionTarget<T> target) throws InterruptedException {
+		Result<T> result = new Result<T>();
+		run(definitions, result, new Exporter<T>() {
+			@Override
+			public void export(T key, ComplexType type) throws IOException {
+				try (OutputStream output = target.open(key)) {
+					marshaller.marshal(output, type);
+				}
+			}
+		});
+		result.complete(definitions.keySet());
+		return result;
+	}
+	
+	private <T> void run(Map<T, ComplexType> definitions, final Result<T> result, final Exporter<T> exporter) throws InterruptedException {
+		ExecutorService executor = this.executor == null ? newExecutor() : this.executor;
+		final Semaphore permits = new Semaphore(concurrency);
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		try {
+			for (final Map.Entry<T, ComplexType> entry : definitions.entrySet()) {
+				// we only hand out as many definitions as we are allowed to marshal at once
+				permits.acquire();
+				try {
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								// a queued definition is skipped once the export is interrupted
+								if (!cancelled.get()) {
+									exporter.export(entry.getKey(), entry.getValue());
+								}
+							}
+							catch (Exception e) {
+								result.failures.put(entry.getKey(), e);
+							}
+							finally {
+								permits.release();
+							}
+						}
+					});
+				}
+				catch (RejectedExecutionException e) {
+					permits.release();
+					result.failures.put(entry.getKey(), e);
+				}
+			}
+			// once we have all the permits, every definition is done
+			permits.acquire(concurrency);
+		}
+		catch (InterruptedException e) {
+			// the definitions in flight can not be stopped halfway, wait for them so nothing is written after we return
+			cancelled.set(true);
+			permits.acquireUninterruptibly(concurrency);
+			throw e;
+		}
+		finally {
+			if (this.executor == null) {
+				executor.shutdown();
+			}
+		}
+	}
+	
+	/**
+	 * The marshaller pools its parser factories and buffers per thread, a small set of long lived threads gets to reuse them for every definition
+	 */
+	protected ExecutorService newExecutor() {
+		return Executors.newFixedThreadPool(concurrency);
+	}
+	
+	/**
+	 * A file that has been written to a temporary file but is not yet in place
+	 */
+	private static class PendingFile {
+		private Path file, temporary;
+		private FileChannel channel;
+		
+		public PendingFile(Path file, Path temporary) {
+			this.file = file;
+			this.temporary = temporary;
+		}
+		
+		public void commit() throws IOException {
+			try {
+				channel.close();
+				try {
+					Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				}
+				catch (AtomicMoveNotSupportedException e) {
+					Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			catch (IOException e) {
+				discard();
+				throw e;
+			}
+		}
+		
+		public void discard() {
+			try {
+				try {
+					if (channel != null) {
+						channel.close();
+					}
+				}
+				finally {
+					Files.deleteIfExists(temporary);
+				}
+			}
+			catch (IOException e) {
+				// the original failure is reported
+			}
+		}
+	}
+	
+	/**
+	 * Collects written files until there are enough of them to be synced together, a file is only moved in place once it is synced
+	 */
+	private class SyncBatch {
+		private Result<Path> result;
+		private List<PendingFile> files = new ArrayList<PendingFile>();
+		
+		public SyncBatch(Result<Path> result) {
+			this.result = result;
+		}
+		
+		public void add(PendingFile file) {
+			List<PendingFile> files = null;
+			synchronized(this) {
+				this.files.add(file);
+				if (this.files.size() >= syncBatchSize) {
+					files = this.files;
+					this.files = new ArrayList<PendingFile>();
+				}
+			}
+			// the actual syncing happens outside of the lock so the other threads can continue
+			if (files != null) {
+				sync(files);
+			}
+		}
+		
+		public void flush() {
+			List<PendingFile> files;
+			synchronized(this) {
+				files = this.files;
+				this.files = new ArrayList<PendingFile>();
+			}
+			sync(files);
+		}
+		
+		public void discard() {
+			List<PendingFile> files;
+			synchronized(this) {
+				files = this.files;
+				this.files = new ArrayList<PendingFile>();
+			}
+			for (PendingFile file : files) {
+				file.discard();
+			}
+		}
+		
+		private void sync(List<PendingFile> files) {
+			Set<Path> directories = new LinkedHashSet<Path>();
+			for (PendingFile file : files) {
+				try {
+					try {
+						file.channel.force(true);
+					}
+					catch (IOException e) {
+						file.discard();
+						throw e;
+					}
+					file.commit();
+					directories.add(file.temporary.toAbsolutePath().getParent());
+				}
+				catch (IOException e) {
+					result.failures.put(file.file, e);
+				}
+			}
+			// the renames are only durable once the directory itself is synced
+			for (Path directory : directories) {
+				try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+					channel.force(true);
+				}
+				catch (IOException e) {
+					// not every platform allows opening or syncing a directory (e.g. windows)
+				}
+			}
+		}
+	}
+
+	public XMLDefinitionMarshaller getMarshaller() {
+		return marshaller;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("The concurrency must be at least 1");
+		}
+		this.concurrency = concurrency;
+	}
+
+	public boolean isSync() {
+		return sync;
+	}
+
+	public void setSync(boolean sync) {
+		this.sync = sync;
+	}
+
+	public int getSyncBatchSize() {
+		return syncBatchSize;
+	}
+
+	public void setSyncBatchSize(int syncBatchSize) {
+		this.syncBatchSize = syncBatchSize;
+	}
+}
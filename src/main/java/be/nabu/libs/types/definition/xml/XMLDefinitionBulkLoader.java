@@ -0,0 +1,426 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.DefinedTypeResolver;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+/**
+ * Loads a set of definitions in parallel, respecting the dependencies between them
+ * The references (definition & superType) are extracted with a quick scan of each definition, after which the strongly connected components are calculated
+ * Components are unmarshalled in topological order, independent components in parallel
+ * A cycle is loaded as one unit on a single thread, this works because every definition is unmarshalled into a structure that is created (and resolvable) up front
+ * If a definition can not be loaded, everything that (indirectly) depends on it is reported as a failure as well
+ */
+public class XMLDefinitionBulkLoader {
+
+	public interface DefinitionSource {
+		public InputStream open() throws IOException;
+	}
+	
+	public static class Result {
+		private Map<String, ComplexType> types = new ConcurrentHashMap<String, ComplexType>();
+		private Map<String, Exception> failures = new ConcurrentHashMap<String, Exception>();
+		
+		public Map<String, ComplexType> getTypes() {
+			return types;
+		}
+		public Map<String, Exception> getFailures() {
+			return failures;
+		}
+	}
+	
+	private XMLDefinitionUnmarshaller template;
+	private Executor executor;
+	
+	/**
+	 * The template is used to configure the unmarshallers that do the actual work, its resolver is used for anything outside of the loaded set
+	 */
+	public XMLDefinitionBulkLoader(XMLDefinitionUnmarshaller template) {
+		this(template, ForkJoinPool.commonPool());
+	}
+	
+	public XMLDefinitionBulkLoader(XMLDefinitionUnmarshaller template, Executor executor) {
+		this.template = template;
+		this.executor = executor;
+	}
+	
+	/**
+	 * Creates sources for all the xml files in the directory, the id is the relative path without extension where separators are replaced with dots
+	 */
+	public static Map<String, DefinitionSource> fromDirectory(final Path directory) throws IOException {
+		Map<String, DefinitionSource> sources = new LinkedHashMap<String, DefinitionSource>();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			Iterator<Path> iterator = paths.iterator();
+			while (iterator.hasNext()) {
+				final Path path = iterator.next();
+				String name = directory.relativize(path).toString();
+				if (Files.isRegularFile(path) && name.endsWith(".xml")) {
+					String id = name.substring(0, name.length() - ".xml".length()).replace(path.getFileSystem().getSeparator(), ".");
+					sources.put(id, new DefinitionSource() {
+						@Override
+						public InputStream open() throws IOException {
+							return Files.newInputStream(path);
+						}
+					});
+				}
+			}
+		}
+		return sources;
+	}
+	
+	public Result load(final Map<String, DefinitionSource> sources) throws InterruptedException {
+		final Result result = new Result();
+		final Map<String, DefinedStructure> structures = new LinkedHashMap<String, DefinedStructure>();
+		for (String id : sources.keySet()) {
+			DefinedStructure structure = new DefinedStructure();
+			structure.setId(id);
+			structures.put(id, structure);
+		}
+		
+		Map<String, Set<String>> references = new LinkedHashMap<String, Set<String>>();
+		for (Map.Entry<String, DefinitionSource> source : sources.entrySet()) {
+			try {
+				references.put(source.getKey(), getReferences(source.getValue(), sources.keySet()));
+			}
+			catch (Exception e) {
+				result.getFailures().put(source.getKey(), e);
+			}
+		}
+		
+		// definitions that could not even be scanned are not loaded, the definitions that refer to them are blocked
+		Map<String, String> unscannable = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, Set<String>> entry : references.entrySet()) {
+			Iterator<String> iterator = entry.getValue().iterator();
+			while (iterator.hasNext()) {
+				String reference = iterator.next();
+				if (result.getFailures().containsKey(reference)) {
+					unscannable.put(entry.getKey(), reference);
+					iterator.remove();
+				}
+			}
+		}
+		
+		final List<List<String>> components = getComponents(references);
+		// which component each id belongs to
+		Map<String, Integer> membership = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i < components.size(); i++) {
+			for (String id : components.get(i)) {
+				membership.put(id, i);
+			}
+		}
+		final List<Set<Integer>> dependents = new ArrayList<Set<Integer>>();
+		final AtomicInteger [] pending = new AtomicInteger[components.size()];
+		for (int i = 0; i < components.size(); i++) {
+			dependents.add(new LinkedHashSet<Integer>());
+			pending[i] = new AtomicInteger();
+		}
+		for (int i = 0; i < components.size(); i++) {
+			Set<Integer> dependencies = new LinkedHashSet<Integer>();
+			for (String id : components.get(i)) {
+				for (String reference : references.get(id)) {
+					Integer dependency = membership.get(reference);
+					if (dependency != null && dependency != i) {
+						dependencies.add(dependency);
+					}
+				}
+			}
+			pending[i].set(dependencies.size());
+			for (Integer dependency : dependencies) {
+				dependents.get(dependency).add(i);
+			}
+		}
+		
+		final DefinedTypeResolver parentResolver = template.getTypeResolver();
+		final DefinedTypeResolver resolver = new DefinedTypeResolver() {
+			@Override
+			public DefinedType resolve(String id) {
+				DefinedStructure structure = structures.get(id);
+				return structure == null ? parentResolver.resolve(id) : structure;
+			}
+		};
+		
+		// the unmarshaller keeps no state of its own, one instance serves all the tasks
+		BulkLoad load = new BulkLoad(sources, structures, components, dependents, pending, newUnmarshaller(resolver), result);
+		for (int i = 0; i < components.size(); i++) {
+			for (String id : components.get(i)) {
+				if (unscannable.containsKey(id)) {
+					load.blocked.putIfAbsent(i, unscannable.get(id));
+				}
+			}
+		}
+		for (int i = 0; i < components.size(); i++) {
+			if (pending[i].get() == 0) {
+				load.schedule(i);
+			}
+		}
+		load.latch.await();
+		return result;
+	}
+	
+	protected XMLDefinitionUnmarshaller newUnmarshaller(DefinedTypeResolver resolver) {
+		XMLDefinitionUnmarshaller unmarshaller = template.copy();
+		unmarshaller.setTypeResolver(resolver);
+		// we unmarshal into existing structures
+		unmarshaller.setLazy(false);
+		return unmarshaller;
+	}
+	
+	/**
+	 * Scans the definition for references to other definitions in the set, no types are built
+	 */
+	protected Set<String> getReferences(DefinitionSource source, Set<String> ids) throws IOException, ParseException {
+		Set<String> references = new LinkedHashSet<String>();
+		try (InputStream input = source.open()) {
+			XMLStreamReader reader = XMLDefinitionUnmarshaller.toStreamReader(input);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+						for (String attribute : new String [] { "definition", "superType" }) {
+							String reference = reader.getAttributeValue(null, attribute);
+							if (reference != null && ids.contains(reference)) {
+								references.add(reference);
+							}
+						}
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new ParseException("Could not scan definition: " + e.getMessage(), 0);
+		}
+		return references;
+	}
+	
+	/**
+	 * Calculates the strongly connected components with an iterative version of Tarjan's algorithm
+	 * The components are returned in topological order: a component only depends on components that come before it
+	 */
+	static List<List<String>> getComponents(Map<String, Set<String>> references) {
+		List<List<String>> components = new ArrayList<List<String>>();
+		Map<String, Integer> index = new LinkedHashMap<String, Integer>();
+		Map<String, Integer> lowLink = new LinkedHashMap<String, Integer>();
+		Set<String> onStack = new LinkedHashSet<String>();
+		List<String> stack = new ArrayList<String>();
+		int counter = 0;
+		for (String start : references.keySet()) {
+			if (index.containsKey(start)) {
+				continue;
+			}
+			// each frame is the node along with an iterator over its references
+			List<String> nodes = new ArrayList<String>();
+			List<Iterator<String>> iterators = new ArrayList<Iterator<String>>();
+			nodes.add(start);
+			iterators.add(getReferences(references, start).iterator());
+			index.put(start, counter);
+			lowLink.put(start, counter++);
+			stack.add(start);
+			onStack.add(start);
+			while (!nodes.isEmpty()) {
+				String node = nodes.get(nodes.size() - 1);
+				Iterator<String> iterator = iterators.get(iterators.size() - 1);
+				if (iterator.hasNext()) {
+					String reference = iterator.next();
+					if (!index.containsKey(reference)) {
+						nodes.add(reference);
+						iterators.add(getReferences(references, reference).iterator());
+						index.put(reference, counter);
+						lowLink.put(reference, counter++);
+						stack.add(reference);
+						onStack.add(reference);
+					}
+					else if (onStack.contains(reference)) {
+						lowLink.put(node, Math.min(lowLink.get(node), index.get(reference)));
+					}
+				}
+				else {
+					nodes.remove(nodes.size() - 1);
+					iterators.remove(iterators.size() - 1);
+					if (!nodes.isEmpty()) {
+						String parent = nodes.get(nodes.size() - 1);
+						lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(node)));
+					}
+					if (lowLink.get(node).equals(index.get(node))) {
+						List<String> component = new ArrayList<String>();
+						String member;
+						do {
+							member = stack.remove(stack.size() - 1);
+							onStack.remove(member);
+							component.add(member);
+						}
+						while (!member.equals(node));
+						components.add(component);
+					}
+				}
+			}
+		}
+		return components;
+	}
+	
+	private static Set<String> getReferences(Map<String, Set<String>> references, String id) {
+		Set<String> set = references.get(id);
+		return set == null ? Collections.<String>emptySet() : set;
+	}
+	
+	/**
+	 * The state of a single call to load()
+	 * Every component is counted down exactly once, whether it was loaded, failed, was blocked by a failed dependency or rejected by the executor
+	 */
+	private class BulkLoad {
+		private Map<String, DefinitionSource> sources;
+		private Map<String, DefinedStructure> structures;
+		private List<List<String>> components;
+		private List<Set<Integer>> dependents;
+		private AtomicInteger [] pending;
+		private XMLDefinitionUnmarshaller unmarshaller;
+		private Result result;
+		private CountDownLatch latch;
+		/**
+		 * The components that depend on a definition that could not be loaded, along with the id of that definition
+		 */
+		private Map<Integer, String> blocked = new ConcurrentHashMap<Integer, String>();
+		
+		public BulkLoad(Map<String, DefinitionSource> sources, Map<String, DefinedStructure> structures, List<List<String>> components, List<Set<Integer>> dependents, AtomicInteger [] pending, XMLDefinitionUnmarshaller unmarshaller, Result result) {
+			this.sources = sources;
+			this.structures = structures;
+			this.components = components;
+			this.dependents = dependents;
+			this.pending = pending;
+			this.unmarshaller = unmarshaller;
+			this.result = result;
+			this.latch = new CountDownLatch(components.size());
+		}
+		
+		public void schedule(final int component) {
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						String failed = null;
+						try {
+							failed = load(component);
+						}
+						finally {
+							// if something unexpected went wrong, the definitions in the component were not loaded either
+							finish(component, failed == null && !isLoaded(component) ? components.get(component).get(0) : failed);
+						}
+					}
+				});
+			}
+			catch (RejectedExecutionException e) {
+				for (String id : components.get(component)) {
+					result.getFailures().put(id, e);
+				}
+				finish(component, components.get(component).get(0));
+			}
+		}
+		
+		/**
+		 * Returns the id of a definition that could not be loaded, or null if the whole component was loaded
+		 */
+		private String load(int component) {
+			List<String> ids = components.get(component);
+			String failed = blocked.get(component);
+			if (failed != null) {
+				for (String id : ids) {
+					result.getFailures().put(id, new ParseException("The definition '" + id + "' depends on '" + failed + "' which could not be loaded", 0));
+				}
+				return failed;
+			}
+			for (String id : ids) {
+				DefinedStructure structure = structures.get(id);
+				try (InputStream input = sources.get(id).open()) {
+					unmarshaller.unmarshal(input, structure, new UnmarshalContext(id));
+					result.getTypes().put(id, structure);
+				}
+				catch (Exception e) {
+					result.getFailures().put(id, e);
+					if (failed == null) {
+						failed = id;
+					}
+				}
+			}
+			// the members of a cycle refer to one another, if one of them failed the others are incomplete as well
+			if (failed != null) {
+				for (String id : ids) {
+					if (result.getTypes().remove(id) != null) {
+						result.getFailures().put(id, new ParseException("The definition '" + id + "' is part of a cycle with '" + failed + "' which could not be loaded", 0));
+					}
+				}
+			}
+			return failed;
+		}
+		
+		private boolean isLoaded(int component) {
+			for (String id : components.get(component)) {
+				if (!result.getTypes().containsKey(id) && !result.getFailures().containsKey(id)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		private void finish(int component, String failed) {
+			try {
+				for (Integer dependent : dependents.get(component)) {
+					// the blocked state must be visible before the dependent can be scheduled
+					if (failed != null) {
+						blocked.putIfAbsent(dependent, failed);
+					}
+					if (pending[dependent].decrementAndGet() == 0) {
+						schedule(dependent);
+					}
+				}
+			}
+			finally {
+				latch.countDown();
+			}
+		}
+	}
+}
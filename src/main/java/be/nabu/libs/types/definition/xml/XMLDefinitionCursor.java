@@ -0,0 +1,106 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.definition.xml;
+
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import be.nabu.libs.types.api.MarshalException;
+
+/**
+ * Exposes a StAX reader as a definition cursor, no tree is built, the events are consumed as the unmarshaller needs them
+ */
+public class XMLDefinitionCursor implements DefinitionCursor {
+
+	private XMLStreamReader reader;
+
+	public XMLDefinitionCursor(XMLStreamReader reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public boolean next() throws ParseException {
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					return true;
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT) {
+					return false;
+				}
+			}
+			return false;
+		}
+		catch (XMLStreamException e) {
+			throw new MarshalException(e);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return getQualifiedName(reader.getPrefix(), reader.getLocalName());
+	}
+
+	@Override
+	public Map<String, String> getAttributes() {
+		Map<String, String> attributes = new LinkedHashMap<String, String>();
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			attributes.put(getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+		}
+		return attributes;
+	}
+
+	@Override
+	public String getText() throws ParseException {
+		try {
+			return reader.getElementText();
+		}
+		catch (XMLStreamException e) {
+			throw new MarshalException(e);
+		}
+	}
+
+	@Override
+	public void skip() throws ParseException {
+		try {
+			int depth = 1;
+			while (depth > 0 && reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+				}
+				else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+				}
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new MarshalException(e);
+		}
+	}
+
+	private static String getQualifiedName(String prefix, String localName) {
+		return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+	}
+}
@@ -19,16 +19,17 @@ package be.nabu.libs.types.definition.xml;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -36,7 +37,6 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
-import be.nabu.libs.converter.ConverterFactory;
 import be.nabu.libs.property.ValueUtils;
 import be.nabu.libs.property.api.Property;
 import be.nabu.libs.property.api.Value;
@@ -46,14 +46,11 @@ import be.nabu.libs.types.api.DefinedSimpleType;
 import be.nabu.libs.types.api.DefinedType;
 import be.nabu.libs.types.api.Group;
 import be.nabu.libs.types.api.MarshalException;
-import be.nabu.libs.types.api.Marshallable;
 import be.nabu.libs.types.api.SimpleType;
 import be.nabu.libs.types.base.ComplexElementImpl;
-import be.nabu.libs.types.base.StringMapCollectionHandlerProvider;
 import be.nabu.libs.types.definition.api.DefinitionMarshaller;
 import be.nabu.libs.types.properties.CollectionHandlerProviderProperty;
 import be.nabu.libs.types.properties.EnumerationProperty;
-import be.nabu.libs.types.properties.MaxOccursProperty;
 import be.nabu.libs.types.properties.NameProperty;
 import be.nabu.libs.types.properties.TemporaryProperty;
 import be.nabu.libs.types.structure.SuperTypeProperty;
@@ -65,6 +62,9 @@ import be.nabu.libs.types.structure.SuperTypeProperty;
  */
 public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 
+	@SuppressWarnings("rawtypes")
+	private static final EnumerationProperty ENUMERATION = new EnumerationProperty();
+
 	private boolean omitXMLDeclaration = true;
 	private boolean prettyPrint = true;
 	private boolean ignoreUnknownSuperTypes = false;
@@ -85,12 +85,31 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 	 */
 	private boolean resolveDefinitions = false;
 	
+	/**
+	 * If set to true, the definition is written in a single pass to the output instead of building a DOM and transforming it
+	 */
+	private boolean streaming = false;
+	
+	/**
+	 * Optional listener that receives the metrics of every marshalled definition, nothing is measured if there is none
+	 */
+	private DefinitionListener listener;
+	
+	private PropertyCodecs codecs = PropertyCodecs.getInstance();
+	
+	private EnumerationCache enumerationCache = EnumerationCache.getInstance();
+	
+	private PropertyViewIndex propertyViewIndex = PropertyViewIndex.getInstance();
+	
 	public static Document newDocument(boolean namespaceAware) {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setValidating(false);
-		factory.setNamespaceAware(namespaceAware);
 		try {
-			return factory.newDocumentBuilder().newDocument();
+			DocumentBuilder builder = XMLFactoryPool.acquireDocumentBuilder(namespaceAware);
+			try {
+				return builder.newDocument();
+			}
+			finally {
+				XMLFactoryPool.release(builder);
+			}
 		}
 		catch (ParserConfigurationException e) {
 			throw new RuntimeException(e);
@@ -99,38 +118,113 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 	
 	@Override
 	public void marshal(OutputStream output, ComplexType type, Value<?>...values) throws IOException {
-		Document document = newDocument(true);
-		// this is just convenience for merging the values, should be refactored
+		DefinitionMetrics metrics = null;
+		long started = 0;
+		if (listener != null) {
+			metrics = new DefinitionMetrics(type instanceof DefinedType ? ((DefinedType) type).getId() : null);
+			output = metrics.count(output);
+			started = System.nanoTime();
+		}
+		DefinitionWriter writer = newWriter(output);
+		if (writer != null) {
+			marshal(writer, type, values);
+			if (metrics != null) {
+				metrics.add(DefinitionMetrics.Phase.SERIALIZE, started);
+			}
+		}
+		else {
+			Document document = newDocument(true);
+			// this is just convenience for merging the values, should be refactored
+			ComplexElementImpl element = new ComplexElementImpl(type, null, values);
+			serialize(document, type, element.getProperties());
+			long serialized = 0;
+			if (metrics != null) {
+				metrics.add(DefinitionMetrics.Phase.SERIALIZE, started);
+				serialized = System.nanoTime();
+			}
+			writeToStream(document, output);
+			if (metrics != null) {
+				metrics.add(DefinitionMetrics.Phase.WRITE, serialized);
+			}
+		}
+		if (metrics != null) {
+			metrics.add(DefinitionMetrics.Phase.TOTAL, started);
+			metrics.setElements(DefinitionMetrics.countElements(type));
+			listener.marshalled(metrics);
+		}
+	}
+	
+	/**
+	 * Returns the writer the definition is streamed to, or null if it is serialized to a document first
+	 */
+	protected DefinitionWriter newWriter(OutputStream output) {
+		return streaming ? new XMLDefinitionWriter(output, encoding, omitXMLDeclaration, prettyPrint) : null;
+	}
+	
+	/**
+	 * Writes the definition to the channel through a pooled buffer, the channel is not closed
+	 */
+	public void marshal(WritableByteChannel channel, ComplexType type, Value<?>...values) throws IOException {
+		ChannelOutputStream output = new ChannelOutputStream(channel);
+		try {
+			marshal(output, type, values);
+		}
+		finally {
+			output.close();
+		}
+	}
+	
+	/**
+	 * Writes the definition into the buffer starting at its current position, a BufferOverflowException is thrown if it does not fit
+	 */
+	public void marshal(ByteBuffer buffer, ComplexType type, Value<?>...values) throws IOException {
+		marshal(new ByteBufferOutputStream(buffer), type, values);
+	}
+	
+	public void marshal(DefinitionWriter writer, ComplexType type, Value<?>...values) throws IOException {
 		ComplexElementImpl element = new ComplexElementImpl(type, null, values);
-		serialize(document, type, element.getProperties());
-		writeToStream(document, output);
+		serialize(writer, type, true, element.getProperties());
+		writer.flush();
 	}
 	
+	/**
+	 * The property lists are always a handful of properties so checking them directly is cheaper than building an index
+	 */
 	protected Value<?> [] whitelist(Value<?> [] values, Property<?>...properties) {
-		List<Value<?>> list = new ArrayList<Value<?>>();
-		List<Property<?>> allowed = Arrays.asList(properties);
+		List<Value<?>> list = new ArrayList<Value<?>>(values.length);
 		for (Value<?> value : values) {
-			if (allowed.contains(value.getProperty()))
+			if (contains(properties, value.getProperty()))
 				list.add(value);
 		}
 		return list.toArray(new Value<?>[list.size()]);
 	}
 	
 	protected Value<?> [] blacklist(Value<?> [] values, Property<?>...properties) {
-		List<Value<?>> list = new ArrayList<Value<?>>();
-		List<Property<?>> restricted = Arrays.asList(properties);
+		List<Value<?>> list = new ArrayList<Value<?>>(values.length);
 		for (Value<?> value : values) {
-			if (!restricted.contains(value.getProperty()))
+			if (!contains(properties, value.getProperty()))
 				list.add(value);
 		}
 		return list.toArray(new Value<?>[list.size()]);
 	}
 	
+	private static boolean contains(Property<?> [] properties, Property<?> property) {
+		for (Property<?> candidate : properties) {
+			if (candidate.equals(property))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the properties of the element that are not simply inherited from its type, the type properties are looked up in a cached index
+	 */
 	protected Value<?> [] getElementProperties(be.nabu.libs.types.api.Element<?> element) {
-		List<Value<?>> list = new ArrayList<Value<?>>();
-		Value<?> [] typeProperties = element.getType().getProperties();
-		for (Value<?> value : element.getProperties()) {
-			if (value.getProperty().equals(NameProperty.getInstance()) || !containsValue(typeProperties, value))
+		Value<?> [] properties = element.getProperties();
+		List<Value<?>> list = new ArrayList<Value<?>>(properties.length);
+		PropertyViewIndex.PropertyView typeProperties = propertyViewIndex.getView(element.getType());
+		for (Value<?> value : properties) {
+			if (value.getProperty().equals(NameProperty.getInstance()) || !typeProperties.contains(value))
 				list.add(value);
 		}
 		return list.toArray(new Value<?>[list.size()]);
@@ -147,69 +241,76 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 		return false;
 	}
 	
-	@SuppressWarnings("rawtypes")
 	protected void writeAttributes(Element target, Value<?>...values) {
 		for (Value<?> value : values) {
-			Property<?> property = value.getProperty();
-			Object object = value.getValue();
-			// don't write empty attributes
-			if (object == null)
-				continue;
-			else if (property.equals(new EnumerationProperty()))
-				continue;
-			// strip leading "@" for attributes
-//			if (property.equals(NameProperty.getInstance()) && object.toString().startsWith("@")) {
-//				object = object.toString().substring(1);
-//			}
-			if (property.equals(new MaxOccursProperty()) && object.equals(0))
-				object = "unbounded";
-			// we need to marshal the property value
-			else if (!String.class.isAssignableFrom(property.getValueClass())) {
-				try {
-					object = ConverterFactory.getInstance().getConverter().convert(object, String.class);
-				}
-				catch (ClassCastException e) {
-					object = null;
-				}
+			String formatted = formatAttribute(value);
+			if (formatted != null)
+				target.setAttribute(value.getProperty().getName(), formatted);
+		}
+	}
+	
+	protected void writeAttributes(DefinitionWriter target, Value<?>...values) throws IOException {
+		for (Value<?> value : values) {
+			String formatted = formatAttribute(value);
+			if (formatted != null)
+				target.attribute(value.getProperty().getName(), formatted);
+		}
+	}
+	
+	/**
+	 * Returns the string representation of the value as it should be written in the attribute or null if it should not be written at all
+	 */
+	protected String formatAttribute(Value<?> value) {
+		Property<?> property = value.getProperty();
+		Object object = value.getValue();
+		// don't write empty attributes
+		if (object == null)
+			return null;
+		// strip leading "@" for attributes
+//		if (property.equals(NameProperty.getInstance()) && object.toString().startsWith("@")) {
+//			object = object.toString().substring(1);
+//		}
+		// the codec takes care of special cases like enumerations (not written), maxOccurs (unbounded) and the string map collection handler
+		PropertyCodec codec = codecs.getCodec(property);
+		if (codec == PropertyCodecs.NOT_WRITTEN)
+			return null;
+		String formatted = codec.format(object);
+		if (formatted == null) {
+			if (property.equals(SuperTypeProperty.getInstance()) && ignoreUnknownSuperTypes) {
+				return null;
 			}
-			if (object == null) {
-				if (property.equals(SuperTypeProperty.getInstance()) && ignoreUnknownSuperTypes) {
-					continue;
-				}
-				// this does not need to be persisted
-				else if (property.equals(CollectionHandlerProviderProperty.getInstance())) {
-					if (value.getValue() instanceof StringMapCollectionHandlerProvider) {
-						target.setAttribute(value.getProperty().getName(), "stringMap");
-					}
-					continue;
-				}
-				throw new MarshalException("Could not convert the property " + property.getName() + " to string");
+			// this does not need to be persisted
+			else if (property.equals(CollectionHandlerProviderProperty.getInstance())) {
+				return null;
 			}
-			target.setAttribute(value.getProperty().getName(), (String) object);
+			throw new MarshalException("Could not convert the property " + property.getName() + " to string");
 		}
+		return formatted;
 	}
 	
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	protected void writeEnumerations(Element target, SimpleType<?> type, List<?> enumerations, Value<?>...values) {
-		// don't marshal any enumerations that are part of the type itself
-		List<?> typeEnumerations = (List<?>) ValueUtils.getValue(new EnumerationProperty(), type.getProperties());
-		if (typeEnumerations != null) {
-			enumerations.removeAll(typeEnumerations);
-		}
-		if (!enumerations.isEmpty()) {
-			while(!(type instanceof Marshallable) && type.getSuperType() != null) {
-				type = (SimpleType<?>) type.getSuperType();
-			}
-			if (!(type instanceof Marshallable))
-				throw new MarshalException("Can not marshal enumeration values");
-			for (Object object : enumerations) {
-				Element enumerationElement = target.getOwnerDocument().createElement("enumeration");
-				enumerationElement.setTextContent(((Marshallable) type).marshal(object, values));
-				target.appendChild(enumerationElement);
-			}
+		for (String enumeration : marshalEnumerations(type, enumerations, values)) {
+			Element enumerationElement = target.getOwnerDocument().createElement("enumeration");
+			enumerationElement.setTextContent(enumeration);
+			target.appendChild(enumerationElement);
+		}
+	}
+	
+	protected void writeEnumerations(DefinitionWriter target, SimpleType<?> type, List<?> enumerations, Value<?>...values) throws IOException {
+		for (String enumeration : marshalEnumerations(type, enumerations, values)) {
+			target.start("enumeration");
+			target.text(enumeration);
+			target.end();
 		}
 	}
 	
+	/**
+	 * Marshals the enumerations that are not already part of the type itself, the list itself is not modified
+	 */
+	protected List<String> marshalEnumerations(SimpleType<?> type, List<?> enumerations, Value<?>...values) {
+		return enumerationCache.marshal(type, enumerations, values);
+	}
+	
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	protected void serialize(Node parent, ComplexType type, Value<?>...values) {
 		Document document = parent instanceof Document? (Document) parent : parent.getOwnerDocument();
@@ -241,7 +342,7 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 		
 		// if there is an enumeration, add it now
 		if (type instanceof SimpleType) {
-			List<?> enumerationValues = (List<?>) ValueUtils.getValue(new EnumerationProperty(), values);
+			List<?> enumerationValues = (List<?>) ValueUtils.getValue(ENUMERATION, values);
 			if (enumerationValues != null && !enumerationValues.isEmpty()) {
 				writeEnumerations(rootElement, (SimpleType) type, enumerationValues, values);
 			}
@@ -275,7 +376,7 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 				writeAttributes(childElement, elementProperties);
 				childElement.setAttribute("type", child.getType() instanceof DefinedSimpleType ? ((DefinedSimpleType) child.getType()).getId() : ((SimpleType<?>) child.getType()).getInstanceClass().getName());
 				// if there is an enumeration, add it now
-				List<?> enumerationValues = (List<?>) ValueUtils.getValue(new EnumerationProperty(), elementProperties);
+				List<?> enumerationValues = (List<?>) ValueUtils.getValue(ENUMERATION, elementProperties);
 				if (enumerationValues != null && !enumerationValues.isEmpty())
 					writeEnumerations(childElement, (SimpleType<?>) child.getType(), enumerationValues, elementProperties);
 				if (!(child instanceof Attribute))
@@ -305,6 +406,117 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 		}
 	}
 	
+	/**
+	 * The streaming counterpart of serialize(Node, ComplexType, Value...)
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void serialize(DefinitionWriter writer, ComplexType type, boolean isRoot, Value<?>...values) throws IOException {
+		writer.start(complexName);
+		
+		// see the hotfix in the DOM version
+		if (type instanceof DefinedType && !isRoot && !resolveDefinitions) {
+			values = blacklist(values, SuperTypeProperty.getInstance(), TemporaryProperty.getInstance());
+		}
+		writeAttributes(writer, values);
+		
+		// add the type
+		if (type instanceof SimpleType)
+			writer.attribute("type", ((SimpleType<?>) type).getInstanceClass().getName());
+		
+		// if it references another type, just do that
+		if (type instanceof DefinedType && !isRoot) {
+			if (resolveDefinitions)
+				serializeInto(writer, type, values);
+			else
+				writer.attribute("definition", ((DefinedType) type).getId());
+		}
+		// otherwise, print all the children, attributes first
+		else
+			serializeInto(writer, type, values);
+		
+		// if there is an enumeration, add it now
+		if (type instanceof SimpleType) {
+			List<?> enumerationValues = (List<?>) ValueUtils.getValue(ENUMERATION, values);
+			if (enumerationValues != null && !enumerationValues.isEmpty()) {
+				writeEnumerations(writer, (SimpleType) type, enumerationValues, values);
+			}
+		}
+		
+		writer.end();
+	}
+	
+	/**
+	 * The streaming counterpart of serializeInto(Element, ComplexType, Value...)
+	 * We can not insert attributes at the top afterwards so we first resolve the extension chain and write all the attributes of the chain before anything else
+	 * The DOM version inserts each attribute before the first child which reverses their order, we do the same to generate identical output
+	 */
+	protected void serializeInto(DefinitionWriter writer, ComplexType type, Value<?>...values) throws IOException {
+		List<ComplexType> chain = new ArrayList<ComplexType>();
+		ComplexType current = type;
+		while (current != null) {
+			chain.add(current);
+			ComplexType next = null;
+			if (current.getSuperType() != null) {
+				if (resolveExtensions && current.getSuperType() instanceof SimpleType) {
+					writer.attribute("type", ((SimpleType<?>) current).getInstanceClass().getName());
+					if (current.getSuperType() instanceof ComplexType)
+						next = (ComplexType) current.getSuperType();
+				}
+				else if (resolveExtensions && current.getSuperType() instanceof ComplexType)
+					next = (ComplexType) current.getSuperType();
+				else if (current.getSuperType() instanceof DefinedType)
+					writer.attribute("superType", ((DefinedType) current.getSuperType()).getId());
+				else if (!ignoreUnknownSuperTypes)
+					throw new MarshalException("Can not reference the super type " + current.getSuperType() + " as it has no fixed definition");
+			}
+			current = next;
+		}
+		for (ComplexType extension : chain) {
+			List<be.nabu.libs.types.api.Element<?>> attributes = new ArrayList<be.nabu.libs.types.api.Element<?>>();
+			for (be.nabu.libs.types.api.Element<?> child : extension) {
+				if (child instanceof Attribute && !(child.getType() instanceof ComplexType))
+					attributes.add(child);
+			}
+			for (int i = attributes.size() - 1; i >= 0; i--)
+				serializeSimple(writer, attributes.get(i));
+		}
+		for (int i = chain.size() - 1; i >= 0; i--) {
+			ComplexType extension = chain.get(i);
+			for (be.nabu.libs.types.api.Element<?> child : extension) {
+				if (child.getType() instanceof ComplexType)
+					serialize(writer, (ComplexType) child.getType(), false, getElementProperties(child));
+				else if (!(child instanceof Attribute))
+					serializeSimple(writer, child);
+			}
+			if (extension.getGroups() != null) {
+				for (Group group : extension.getGroups()) {
+					writer.start("group");
+					writeAttributes(writer, group.getProperties());
+					writer.attribute("type", group.getClass().getName());
+					for (be.nabu.libs.types.api.Element<?> child : group) {
+						writer.start("member");
+						writer.attribute("name", child.getName());
+						writer.end();
+					}
+					writer.end();
+				}
+			}
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	protected void serializeSimple(DefinitionWriter writer, be.nabu.libs.types.api.Element<?> child) throws IOException {
+		writer.start(child instanceof Attribute ? attributeName : simpleName);
+		Value<?> [] elementProperties = getElementProperties(child);
+		writeAttributes(writer, elementProperties);
+		writer.attribute("type", child.getType() instanceof DefinedSimpleType ? ((DefinedSimpleType) child.getType()).getId() : ((SimpleType<?>) child.getType()).getInstanceClass().getName());
+		// if there is an enumeration, add it now
+		List<?> enumerationValues = (List<?>) ValueUtils.getValue(ENUMERATION, elementProperties);
+		if (enumerationValues != null && !enumerationValues.isEmpty())
+			writeEnumerations(writer, (SimpleType<?>) child.getType(), enumerationValues, elementProperties);
+		writer.end();
+	}
+	
 	protected Group getGroup(ComplexType type, be.nabu.libs.types.api.Element<?> element) {
 		if (type.getGroups() == null)
 			return null;
@@ -327,8 +539,16 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 	}
 	
 	public static void toStream(Document document, OutputStream output, String encoding, boolean omitXMLDeclaration, boolean prettyPrint) throws TransformerException {
-		TransformerFactory factory = TransformerFactory.newInstance();
-		Transformer transformer = factory.newTransformer();
+		Transformer transformer = XMLFactoryPool.acquireTransformer();
+		try {
+			transform(transformer, document, output, encoding, omitXMLDeclaration, prettyPrint);
+		}
+		finally {
+			XMLFactoryPool.release(transformer);
+		}
+	}
+	
+	private static void transform(Transformer transformer, Document document, OutputStream output, String encoding, boolean omitXMLDeclaration, boolean prettyPrint) throws TransformerException {
 		if (omitXMLDeclaration)
 			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
 		if (prettyPrint) {
@@ -337,13 +557,16 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
 		}
 		transformer.setOutputProperty(OutputKeys.ENCODING, encoding);
-		java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-		transformer.transform(new DOMSource(document), new StreamResult(buffer));
+		if (!prettyPrint) {
+			transformer.transform(new DOMSource(document), new StreamResult(output));
+			return;
+		}
 		try {
-			byte[] bytes = prettyPrint
-				? retabIndentation(buffer.toString(encoding)).getBytes(encoding)
-				: buffer.toByteArray();
-			output.write(bytes);
+			// the indentation is rewritten while the content streams through, the document is never buffered as a whole
+			// the transformer still escapes whatever the encoding can not represent, it decides that based on the output property, not the writer
+			RetabWriter writer = new RetabWriter(new OutputStreamWriter(output, encoding));
+			transformer.transform(new DOMSource(document), new StreamResult(writer));
+			writer.finish();
 		}
 		catch (IOException e) {
 			TransformerException wrapped = new TransformerException(e.getMessage());
@@ -352,35 +575,13 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 		}
 	}
 
-	private static String retabIndentation(String content) {
-		StringBuilder builder = new StringBuilder();
-		String[] lines = content.split("\\r?\\n", -1);
-		for (int i = 0; i < lines.length; i++) {
-			String line = lines[i];
-			int index = 0;
-			while (index < line.length() && line.charAt(index) == ' ') {
-				index++;
-			}
-			int tabs = index / 4;
-			int remainder = index % 4;
-			for (int j = 0; j < tabs; j++) {
-				builder.append('\t');
-			}
-			for (int j = 0; j < remainder; j++) {
-				builder.append(' ');
-			}
-			builder.append(line.substring(index));
-			if (i + 1 < lines.length) {
-				builder.append('\n');
-			}
-		}
-		return builder.toString();
-	}
-
+	/**
+	 * Walks the siblings instead of the child node list, the length of a node list is recalculated after every insert which made adding attributes quadratic
+	 */
 	protected Element getFirstChild(Node parent) {
-		for (int i = 0; i < parent.getChildNodes().getLength(); i++) {
-			if (parent.getChildNodes().item(i).getNodeType() == Node.ELEMENT_NODE)
-				return (Element) parent.getChildNodes().item(i);
+		for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE)
+				return (Element) child;
 		}
 		return null;
 	}
@@ -417,6 +618,46 @@ public class XMLDefinitionMarshaller implements DefinitionMarshaller {
 		this.prettyPrint = prettyPrint;
 	}
 
+	public DefinitionListener getListener() {
+		return listener;
+	}
+
+	public void setListener(DefinitionListener listener) {
+		this.listener = listener;
+	}
+
+	public PropertyCodecs getCodecs() {
+		return codecs;
+	}
+
+	public void setCodecs(PropertyCodecs codecs) {
+		this.codecs = codecs;
+	}
+
+	public EnumerationCache getEnumerationCache() {
+		return enumerationCache;
+	}
+
+	public void setEnumerationCache(EnumerationCache enumerationCache) {
+		this.enumerationCache = enumerationCache;
+	}
+
+	public PropertyViewIndex getPropertyViewIndex() {
+		return propertyViewIndex;
+	}
+
+	public void setPropertyViewIndex(PropertyViewIndex propertyViewIndex) {
+		this.propertyViewIndex = propertyViewIndex;
+	}
+
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
 	public boolean isIgnoreUnknownSuperTypes() {
 		return ignoreUnknownSuperTypes;
 	}
@@ -17,15 +17,27 @@
 
 package be.nabu.libs.types.definition.xml;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.text.ParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +55,7 @@ import be.nabu.libs.property.api.Value;
 import be.nabu.libs.types.DefinedTypeResolverFactory;
 import be.nabu.libs.types.SimpleTypeWrapperFactory;
 import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
 import be.nabu.libs.types.api.DefinedTypeResolver;
 import be.nabu.libs.types.api.MarshalException;
 import be.nabu.libs.types.api.ModifiableComplexType;
@@ -52,42 +65,227 @@ import be.nabu.libs.types.api.Type;
 import be.nabu.libs.types.base.AttributeImpl;
 import be.nabu.libs.types.base.ComplexElementImpl;
 import be.nabu.libs.types.base.SimpleElementImpl;
-import be.nabu.libs.types.base.StringMapCollectionHandlerProvider;
 import be.nabu.libs.types.base.ValueImpl;
 import be.nabu.libs.types.definition.api.DefinitionUnmarshaller;
-import be.nabu.libs.types.properties.AttributeQualifiedDefaultProperty;
-import be.nabu.libs.types.properties.CollectionHandlerProviderProperty;
-import be.nabu.libs.types.properties.ElementQualifiedDefaultProperty;
 import be.nabu.libs.types.properties.EnumerationProperty;
-import be.nabu.libs.types.properties.MaxOccursProperty;
-import be.nabu.libs.types.properties.QualifiedProperty;
+import be.nabu.libs.types.properties.NameProperty;
 import be.nabu.libs.types.structure.DefinedStructure;
 import be.nabu.libs.types.structure.SimpleStructure;
 import be.nabu.libs.types.structure.Structure;
 
 public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
+
+	@SuppressWarnings("rawtypes")
+	private static final EnumerationProperty ENUMERATION = new EnumerationProperty();
 	
 	private Converter converter = ConverterFactory.getInstance().getConverter();
 	private SimpleTypeWrapper simpleTypeWrapper = SimpleTypeWrapperFactory.getInstance().getWrapper();
 	private DefinedTypeResolver typeResolver = DefinedTypeResolverFactory.getInstance().getResolver();
 	private boolean ignoreUnknown;
-	private List<String> ignoredReferences;
+	
+	/**
+	 * If set to true, the definition is unmarshalled straight from the parser events instead of building a DOM first
+	 */
+	private boolean streaming;
+	
+	/**
+	 * If set to true, only the root of the definition is unmarshalled up front, the children are unmarshalled when they are first accessed
+	 */
+	private boolean lazy;
+	
+	private AttributeBindingIndex bindingIndex = AttributeBindingIndex.getInstance();
+	
+	/**
+	 * The classloader used to resolve simple types that are not known to the wrapper, by default this is the classloader of this library
+	 */
+	private ClassLoader classLoader = XMLDefinitionUnmarshaller.class.getClassLoader();
+	private SimpleTypeCache simpleTypeCache = SimpleTypeCache.getInstance();
+	/**
+	 * Parses the attribute values, this is tied to the converter
+	 */
+	private PropertyCodecs codecs = PropertyCodecs.getInstance();
+	/**
+	 * When set, the strings and values that end up in the unmarshalled types are canonicalized through this pool
+	 */
+	private DefinitionInterner interner;
+	/**
+	 * When set, identical field and attribute declarations share one immutable set of properties
+	 */
+	private SharedPropertiesPool sharedPropertiesPool;
+	/**
+	 * Optional listener that receives the metrics of every unmarshalled definition, nothing is measured if there is none
+	 */
+	private DefinitionListener listener;
 	private Logger logger = LoggerFactory.getLogger(getClass());
 	
 	/**
 	 * If we ever are going to stop circular reference to oneself, we need to know who oneself is...
+	 * This is the default id for calls that do not pass in their own context
 	 */
 	private String idToUnmarshal;
 	/**
-	 * This keeps a reference to the root element of what you are trying to unmarshal
-	 * If we have a circular reference, we can just put that as type instead of resolving (requires the id to be set)
+	 * The context of the call that is running on the current thread, all the state of a call lives there so the unmarshaller itself can be shared
 	 */
-	private ComplexType root;
+	private ThreadLocal<UnmarshalContext> contexts = new ThreadLocal<UnmarshalContext>();
+	/**
+	 * The ignored references of the last finished call, this is only kept for the deprecated getIgnoredReferences()
+	 */
+	private volatile List<String> ignoredReferences;
 	
 	@Override
 	public ComplexType unmarshal(InputStream input) throws IOException, ParseException {
+		return unmarshal(input, new UnmarshalContext(idToUnmarshal));
+	}
+	
+	public void unmarshal(InputStream input, ModifiableComplexType structure) throws ParseException, IOException {
+		unmarshal(input, structure, new UnmarshalContext(idToUnmarshal));
+	}
+	
+	/**
+	 * Reads the definition from the channel as it is parsed, the channel is not closed
+	 */
+	public ComplexType unmarshal(ReadableByteChannel channel) throws IOException, ParseException {
+		ChannelInputStream input = new ChannelInputStream(channel);
 		try {
-			Document document = toDocument(input);
+			return unmarshal(input);
+		}
+		finally {
+			input.close();
+		}
+	}
+	
+	public void unmarshal(ReadableByteChannel channel, ModifiableComplexType structure) throws ParseException, IOException {
+		ChannelInputStream input = new ChannelInputStream(channel);
+		try {
+			unmarshal(input, structure);
+		}
+		finally {
+			input.close();
+		}
+	}
+	
+	/**
+	 * Reads the definition straight from the buffer (heap or direct), the position of the buffer is not modified
+	 */
+	public ComplexType unmarshal(ByteBuffer buffer) throws IOException, ParseException {
+		return unmarshal(new ByteBufferInputStream(buffer));
+	}
+	
+	public void unmarshal(ByteBuffer buffer, ModifiableComplexType structure) throws ParseException, IOException {
+		unmarshal(new ByteBufferInputStream(buffer), structure);
+	}
+	
+	/**
+	 * Unmarshals with the given context, the context receives the ignored references and the diagnostics of this call
+	 */
+	public ComplexType unmarshal(InputStream input, UnmarshalContext context) throws IOException, ParseException {
+		UnmarshalContext previous = enter(context);
+		try {
+			long started = context.getMetrics() == null ? 0 : System.nanoTime();
+			ComplexType result = unmarshalInput(context.getMetrics() == null ? input : context.getMetrics().count(input));
+			finish(context, result, started);
+			return result;
+		}
+		finally {
+			exit(previous);
+		}
+	}
+	
+	public void unmarshal(InputStream input, ModifiableComplexType structure, UnmarshalContext context) throws ParseException, IOException {
+		UnmarshalContext previous = enter(context);
+		try {
+			long started = context.getMetrics() == null ? 0 : System.nanoTime();
+			unmarshalInput(context.getMetrics() == null ? input : context.getMetrics().count(input), structure);
+			finish(context, structure, started);
+		}
+		finally {
+			exit(previous);
+		}
+	}
+	
+	/**
+	 * Binds the context to the current thread, the previous context (if any) is returned so nested calls can restore it
+	 */
+	private UnmarshalContext enter(UnmarshalContext context) {
+		UnmarshalContext previous = contexts.get();
+		// a nested call (e.g. through the resolver) is part of the same session
+		if (previous != null && context.getSession() == null) {
+			context.setSession(previous.getSession());
+		}
+		if (listener != null) {
+			context.setMetrics(new DefinitionMetrics(context.getId()));
+		}
+		contexts.set(context);
+		return previous;
+	}
+	
+	private void exit(UnmarshalContext previous) {
+		if (previous == null) {
+			contexts.remove();
+		}
+		else {
+			contexts.set(previous);
+		}
+	}
+	
+	private void finish(UnmarshalContext context, ComplexType result, long started) {
+		ignoredReferences = context.getIgnoredReferences();
+		DefinitionMetrics metrics = context.getMetrics();
+		if (metrics != null) {
+			metrics.add(DefinitionMetrics.Phase.TOTAL, started);
+			if (result instanceof DefinedType && ((DefinedType) result).getId() != null) {
+				metrics.setId(((DefinedType) result).getId());
+			}
+			metrics.setIgnoredReferences(context.getIgnoredReferences());
+			listener.unmarshalled(metrics);
+		}
+	}
+	
+	/**
+	 * The context of the current call
+	 * The entry points (public or protected) always bind one, only a helper that is called directly (e.g. getSimpleType) gets a new context that is not kept
+	 */
+	protected UnmarshalContext getContext() {
+		UnmarshalContext context = contexts.get();
+		return context == null ? new UnmarshalContext(idToUnmarshal) : context;
+	}
+	
+	/**
+	 * Binds a context if the protected entry point is called directly, returns false if a call is already in progress
+	 * No metrics are gathered for such calls, the context is only there to keep the state of the call together
+	 */
+	private boolean bind() {
+		if (contexts.get() != null) {
+			return false;
+		}
+		contexts.set(new UnmarshalContext(idToUnmarshal));
+		return true;
+	}
+	
+	private void unbind(boolean bound) {
+		if (bound) {
+			ignoredReferences = contexts.get().getIgnoredReferences();
+			contexts.remove();
+		}
+	}
+	
+	private DefinitionMetrics getMetrics() {
+		UnmarshalContext context = contexts.get();
+		return context == null ? null : context.getMetrics();
+	}
+	
+	/**
+	 * Unmarshals the input within the context of the current call, subclasses can override this to support other formats
+	 */
+	protected ComplexType unmarshalInput(InputStream input) throws IOException, ParseException {
+		if (lazy) {
+			return unmarshalLazily(input);
+		}
+		else if (streaming) {
+			return unmarshalStream(input, new DefinedStructure());
+		}
+		try {
+			Document document = parse(input);
 			return unmarshal(document, new DefinedStructure());
 		}
 		catch (SAXException e) {
@@ -98,9 +296,13 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 		}
 	}
 	
-	public void unmarshal(InputStream input, ModifiableComplexType structure) throws ParseException, IOException {
+	protected void unmarshalInput(InputStream input, ModifiableComplexType structure) throws ParseException, IOException {
+		if (streaming) {
+			unmarshalStream(input, structure);
+			return;
+		}
 		try {
-			Document document = toDocument(input);
+			Document document = parse(input);
 			unmarshal(document, structure);
 		}
 		catch (SAXException e) {
@@ -111,6 +313,137 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 		}
 	}
 	
+	private Document parse(InputStream input) throws SAXException, IOException, ParserConfigurationException {
+		DefinitionMetrics metrics = getMetrics();
+		long started = metrics == null ? 0 : System.nanoTime();
+		Document document = toDocument(input);
+		if (metrics != null) {
+			metrics.add(DefinitionMetrics.Phase.PARSE, started);
+		}
+		return document;
+	}
+	
+	protected ComplexType unmarshalStream(InputStream input, ModifiableComplexType structure) throws ParseException {
+		try {
+			XMLStreamReader reader = toStreamReader(input);
+			try {
+				return unmarshal(new XMLDefinitionCursor(reader), structure);
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new MarshalException(e);
+		}
+	}
+	
+	protected ComplexType unmarshalLazily(InputStream input) throws IOException, ParseException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte [] buffer = new byte[8192];
+		int read;
+		while ((read = input.read(buffer)) > 0) {
+			output.write(buffer, 0, read);
+		}
+		byte [] content = output.toByteArray();
+		boolean bound = bind();
+		try {
+			return unmarshalLazily(content);
+		}
+		finally {
+			unbind(bound);
+		}
+	}
+	
+	private ComplexType unmarshalLazily(byte [] content) throws ParseException {
+		UnmarshalContext context = getContext();
+		XMLDefinitionUnmarshaller unmarshaller = copy();
+		// the children are unmarshalled later on, they must still recognize references to this definition
+		unmarshaller.setIdToUnmarshal(context.getId());
+		LazyDefinedStructure structure = new LazyDefinedStructure(unmarshaller, content);
+		try {
+			XMLStreamReader reader = toStreamReader(new ByteArrayInputStream(content));
+			try {
+				DefinitionCursor cursor = new XMLDefinitionCursor(reader);
+				if (!cursor.next()) {
+					throw new ParseException("No root element found", 0);
+				}
+				context.setRoot(structure);
+				Map<String, String> attributes = cursor.getAttributes();
+				// the supertype is a property of the root and it is needed to determine the supported properties, it is resolved immediately
+				Type superType = getSuperType(attributes.get("superType"));
+				if (superType != null) {
+					structure.setSuperType(superType);
+				}
+				structure.setProperty(unmarshalAttributes(attributes, structure, "superType").toArray(new Value<?>[0]));
+				structure.setRootUnmarshalled();
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new MarshalException(e);
+		}
+		return structure;
+	}
+	
+	/**
+	 * Unmarshals the children of the root in the content into the given structure, the root itself is assumed to be unmarshalled already
+	 */
+	protected void unmarshalContent(byte [] content, ModifiableComplexType structure) throws ParseException {
+		UnmarshalContext context = new UnmarshalContext(idToUnmarshal);
+		UnmarshalContext previous = enter(context);
+		try {
+			long started = context.getMetrics() == null ? 0 : System.nanoTime();
+			XMLStreamReader reader = toStreamReader(new ByteArrayInputStream(content));
+			try {
+				DefinitionCursor cursor = new XMLDefinitionCursor(reader);
+				if (!cursor.next()) {
+					throw new ParseException("No root element found", 0);
+				}
+				context.setRoot(structure);
+				unmarshalChildren(cursor, structure);
+			}
+			finally {
+				reader.close();
+			}
+			finish(context, structure, started);
+		}
+		catch (XMLStreamException e) {
+			throw new MarshalException(e);
+		}
+		finally {
+			exit(previous);
+		}
+	}
+	
+	/**
+	 * Creates a new unmarshaller with the same configuration
+	 */
+	protected XMLDefinitionUnmarshaller copy() {
+		XMLDefinitionUnmarshaller unmarshaller = newInstance();
+		unmarshaller.setConverter(converter);
+		unmarshaller.setCodecs(codecs);
+		unmarshaller.setSimpleTypeWrapper(simpleTypeWrapper);
+		unmarshaller.setSimpleTypeCache(simpleTypeCache);
+		unmarshaller.setClassLoader(classLoader);
+		unmarshaller.setBindingIndex(bindingIndex);
+		unmarshaller.setTypeResolver(typeResolver);
+		unmarshaller.setIgnoreUnknown(ignoreUnknown);
+		unmarshaller.setStreaming(streaming);
+		unmarshaller.setLazy(lazy);
+		unmarshaller.setInterner(interner);
+		unmarshaller.setSharedPropertiesPool(sharedPropertiesPool);
+		unmarshaller.setListener(listener);
+		unmarshaller.setIdToUnmarshal(idToUnmarshal);
+		return unmarshaller;
+	}
+	
+	protected XMLDefinitionUnmarshaller newInstance() {
+		return new XMLDefinitionUnmarshaller();
+	}
+	
 	public String getIdToUnmarshal() {
 		return idToUnmarshal;
 	}
@@ -119,82 +452,181 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 		this.idToUnmarshal = idToUnmarshal;
 	}
 
-	protected ComplexType unmarshal(Document document, ModifiableComplexType structure) throws ParseException {	
-		this.root = structure;
+	protected ComplexType unmarshal(Document document, ModifiableComplexType structure) throws ParseException {
+		boolean bound = bind();
+		try {
+			return unmarshalDocument(document, structure);
+		}
+		finally {
+			unbind(bound);
+		}
+	}
+	
+	private ComplexType unmarshalDocument(Document document, ModifiableComplexType structure) throws ParseException {
+		getContext().setRoot(structure);
 		Type superType = getSuperType(document.getDocumentElement());
 		if (superType != null && structure instanceof Structure) {
 			((Structure) structure).setSuperType(superType);
 		}
 		structure.setProperty(unmarshalAttributes(document.getDocumentElement(), structure, "superType").toArray(new Value<?>[0]));
-		ignoredReferences = new ArrayList<String>();
 		unmarshal(document.getDocumentElement(), structure);
 		return structure;
 	}
 	
+	/**
+	 * The streaming counterpart of unmarshal(Document, ModifiableComplexType), the cursor should not yet be positioned on the root element
+	 */
+	protected ComplexType unmarshal(DefinitionCursor cursor, ModifiableComplexType structure) throws ParseException {
+		boolean bound = bind();
+		try {
+			return unmarshalCursor(cursor, structure);
+		}
+		finally {
+			unbind(bound);
+		}
+	}
+	
+	private ComplexType unmarshalCursor(DefinitionCursor cursor, ModifiableComplexType structure) throws ParseException {
+		if (!cursor.next()) {
+			throw new ParseException("No root element found", 0);
+		}
+		getContext().setRoot(structure);
+		Map<String, String> attributes = cursor.getAttributes();
+		Type superType = getSuperType(attributes.get("superType"));
+		if (superType != null && structure instanceof Structure) {
+			((Structure) structure).setSuperType(superType);
+		}
+		structure.setProperty(unmarshalAttributes(attributes, structure, "superType").toArray(new Value<?>[0]));
+		unmarshalChildren(cursor, structure);
+		return structure;
+	}
+	
 	protected Type getSuperType(Element element) throws ParseException {
+		return element.hasAttribute("superType") ? getSuperType(element.getAttribute("superType")) : null;
+	}
+	
+	protected Type getSuperType(String id) throws ParseException {
 		Type superType = null;
-		if (element.hasAttribute("superType")) {
-			if (idToUnmarshal != null && idToUnmarshal.equals(element.getAttribute("superType"))) {
-				superType = root;
+		if (id != null) {
+			UnmarshalContext context = getContext();
+			if (context.getId() != null && context.getId().equals(id)) {
+				superType = context.getRoot();
 			}
 			else {
-				superType = typeResolver.resolve(element.getAttribute("superType"));
+				superType = resolve(id);
 			}
 			if (superType == null) {
-//				throw new ParseException("Unresolvable supertype: " + element.getAttribute("superType"), 0);
-				logger.error("Could not resolve supertype: " + element.getAttribute("superType"));
+//				throw new ParseException("Unresolvable supertype: " + id, 0);
+				logger.error("Could not resolve supertype: " + id);
+				context.getDiagnostics().add("Could not resolve supertype: " + id);
 			}
 		}
 		return superType;
 	}
 	
+	protected ComplexType getDefinition(String id) throws ParseException {
+		UnmarshalContext context = getContext();
+		ComplexType reference;
+		if (context.getId() != null && context.getId().equals(id)) {
+			reference = context.getRoot();
+		}
+		else {
+			reference = (ComplexType) resolve(id);
+		}
+		if (reference == null && !ignoreUnknown) {
+			throw new ParseException("Unresolved reference: " + id, 0);
+		}
+		else if (reference == null) {
+			logger.error("Could not resolve referenced definition: " + id);
+			context.getDiagnostics().add("Could not resolve referenced definition: " + id);
+			context.getIgnoredReferences().add(id);
+		}
+		return reference;
+	}
+	
+	private DefinedType resolve(String id) {
+		UnmarshalContext context = contexts.get();
+		// definitions of the session are never resolved through the resolver, we get the structure they will be loaded into
+		DefinedType reference = context == null || context.getSession() == null ? null : context.getSession().resolve(id);
+		if (reference != null) {
+			return reference;
+		}
+		DefinitionMetrics metrics = getMetrics();
+		if (metrics == null) {
+			return typeResolver.resolve(id);
+		}
+		long started = System.nanoTime();
+		DefinedType resolved = typeResolver.resolve(id);
+		metrics.add(DefinitionMetrics.Phase.RESOLVE, started);
+		metrics.resolved(resolved != null);
+		return resolved;
+	}
+	
+	protected SimpleType<?> getSimpleType(String typeName) throws ParseException {
+		DefinitionMetrics metrics = getMetrics();
+		long started = metrics == null ? 0 : System.nanoTime();
+		try {
+			return resolveSimpleType(typeName);
+		}
+		finally {
+			if (metrics != null) {
+				metrics.add(DefinitionMetrics.Phase.LOAD_CLASS, started);
+			}
+		}
+	}
+	
+	private SimpleType<?> resolveSimpleType(String typeName) throws ParseException {
+		SimpleType<?> type = null;
+		if (typeName != null && !typeName.isEmpty()) {
+			try {
+				type = simpleTypeCache.resolve(simpleTypeWrapper, classLoader, typeName);
+			}
+			catch (ClassNotFoundException e) {
+				// if we want to ignore the unknown, we use a string
+				if (ignoreUnknown) {
+					logger.error("Could not resolve referenced simple type: " + typeName);
+					getContext().getDiagnostics().add("Could not resolve referenced simple type: " + typeName);
+					type = simpleTypeWrapper.wrap(String.class);
+				}
+				else {
+					throw new ParseException("Could not find class: " + e.getMessage(), 0);
+				}
+			}
+		}
+		return type;
+	}
+	
+	/**
+	 * Nested structures are handled with an explicit stack instead of recursion so the nesting depth is not limited by the thread stack
+	 * The children are visited by walking the siblings, a node list is not guaranteed to have constant time access
+	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	protected void unmarshal(Element element, ModifiableComplexType structure) throws ParseException {
-		for (int i = 0; i < element.getChildNodes().getLength(); i++) {
-			Node node = element.getChildNodes().item(i);
+		DefinitionMetrics metrics = getMetrics();
+		Deque<DocumentFrame> stack = new ArrayDeque<DocumentFrame>();
+		Node node = element.getFirstChild();
+		while (node != null || !stack.isEmpty()) {
+			// we finished the current structure, continue in the parent
+			if (node == null) {
+				DocumentFrame frame = stack.pop();
+				node = frame.next;
+				structure = frame.structure;
+				continue;
+			}
+			Node next = node.getNextSibling();
 			if (node.getNodeType() == Node.ELEMENT_NODE) {
 				Element child = (Element) node;
+				if (metrics != null) {
+					metrics.element();
+				}
 				String typeName = child.getAttribute("type");
 				Type superType = getSuperType(child);
-				SimpleType<?> type = null;
-				if (typeName != null && !typeName.isEmpty()) {
-					try {
-						if (typeName != null && !typeName.isEmpty()) {
-							type = simpleTypeWrapper.getByName(typeName);
-							if (type == null) {
-								type = simpleTypeWrapper.wrap(Class.forName(typeName));
-							}
-						}
-					}
-					catch (ClassNotFoundException e) {
-						// if we want to ignore the unknown, we use a string
-						if (ignoreUnknown) {
-							logger.error("Could not resolve referenced simple type: " + typeName);
-							type = simpleTypeWrapper.wrap(String.class);
-						}
-						else {
-							throw new ParseException("Could not find class: " + e.getMessage(), 0);
-						}
-					}
-				}
+				SimpleType<?> type = getSimpleType(typeName);
 				if (child.getNodeName().equals("structure")) {
 					// if there is a "reference" attribute, this is not an extension but simply a reference to an existing type
 					if (child.hasAttribute("definition")) {
-						ComplexType reference;
-						if (idToUnmarshal != null && idToUnmarshal.equals(child.getAttribute("definition"))) {
-							reference = root;
-						}
-						else {
-							reference = (ComplexType) typeResolver.resolve(child.getAttribute("definition"));
-						}
-						if (reference == null && !ignoreUnknown) {
-							throw new ParseException("Unresolved reference: " + child.getAttribute("definition"), 0);
-						}
-						else if (reference == null) {
-							logger.error("Could not resolve referenced definition: " + child.getAttribute("definition"));
-							ignoredReferences.add(child.getAttribute("definition"));
-						}
-						else {
+						ComplexType reference = getDefinition(child.getAttribute("definition"));
+						if (reference != null) {
 							// all attributes are always set on the element
 							structure.add(new ComplexElementImpl(reference, structure, unmarshalAttributes(child, reference, "definition", "superType", "type").toArray(new Value<?>[0])));
 						}
@@ -206,7 +638,10 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 						}
 						// it might be wise to put attributes like name & namespace in the type here instead of the element
 						structure.add(new ComplexElementImpl(childStructure, structure, unmarshalAttributes(child, childStructure, "type", "superType").toArray(new Value<?>[0])));
-						unmarshal(child, childStructure);
+						// descend into the child structure, we continue with the next sibling once it is done
+						stack.push(new DocumentFrame(next, structure));
+						structure = childStructure;
+						next = child.getFirstChild();
 					}
 				}
 				else if (type == null) {
@@ -214,14 +649,7 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 				}
 				else {
 					List<Value<?>> properties = unmarshalAttributes(child, type, "type", "superType");
-					be.nabu.libs.types.api.Element<?> childElement;
-					if (child.getNodeName().equals("attribute")) {
-						childElement = new AttributeImpl(type, structure, properties.toArray(new Value<?>[0]));
-					}
-					else if (child.getNodeName().equals("field")) {
-						childElement = new SimpleElementImpl(type, structure, properties.toArray(new Value<?>[0]));
-					}
-					else {
+					if (!child.getNodeName().equals("attribute") && !child.getNodeName().equals("field")) {
 						throw new ParseException("Invalid tag: " + child.getNodeName(), 0);
 					}
 					if (superType != null) {
@@ -229,22 +657,113 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 					}
 					List<?> enumerations = unmarshalEnumerations(child, type);
 					if (!enumerations.isEmpty()) {
-						childElement.setProperty(new ValueImpl(new EnumerationProperty(), enumerations));
+						properties.add(new ValueImpl(ENUMERATION, enumerations));
+					}
+					structure.add(newElement(type, structure, child.getNodeName().equals("attribute"), properties));
+				}
+			}
+			node = next;
+		}
+	}
+	
+	private static class DocumentFrame {
+		private Node next;
+		private ModifiableComplexType structure;
+		
+		public DocumentFrame(Node next, ModifiableComplexType structure) {
+			this.next = next;
+			this.structure = structure;
+		}
+	}
+	
+	/**
+	 * The streaming counterpart of unmarshal(Element, ModifiableComplexType), it consumes all the children of the element the cursor is positioned on
+	 * The cursor already tracks where we are in the document, we only need to remember the structures we are nested in
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void unmarshalChildren(DefinitionCursor cursor, ModifiableComplexType structure) throws ParseException {
+		DefinitionMetrics metrics = getMetrics();
+		Deque<ModifiableComplexType> stack = new ArrayDeque<ModifiableComplexType>();
+		while (true) {
+			if (!cursor.next()) {
+				// the current structure has ended, continue in the parent
+				if (stack.isEmpty()) {
+					break;
+				}
+				structure = stack.pop();
+				continue;
+			}
+			if (metrics != null) {
+				metrics.element();
+			}
+			String name = cursor.getName();
+			Map<String, String> attributes = cursor.getAttributes();
+			String typeName = attributes.get("type");
+			Type superType = getSuperType(attributes.get("superType"));
+			SimpleType<?> type = getSimpleType(typeName);
+			if (name.equals("structure")) {
+				// if there is a "reference" attribute, this is not an extension but simply a reference to an existing type
+				if (attributes.containsKey("definition")) {
+					ComplexType reference = getDefinition(attributes.get("definition"));
+					if (reference != null) {
+						// all attributes are always set on the element
+						structure.add(new ComplexElementImpl(reference, structure, unmarshalAttributes(attributes, reference, "definition", "superType", "type").toArray(new Value<?>[0])));
+					}
+					// the content of a reference is never read
+					cursor.skip();
+				}
+				else {
+					Structure childStructure = type == null ? new Structure() : new SimpleStructure(type);
+					if (superType != null) {
+						childStructure.setSuperType(superType);
 					}
-					structure.add(childElement);
+					structure.add(new ComplexElementImpl(childStructure, structure, unmarshalAttributes(attributes, childStructure, "type", "superType").toArray(new Value<?>[0])));
+					stack.push(structure);
+					structure = childStructure;
 				}
 			}
+			else if (type == null) {
+				throw new IllegalStateException("Could not resolve: " + typeName);
+			}
+			else {
+				List<Value<?>> properties = unmarshalAttributes(attributes, type, "type", "superType");
+				if (!name.equals("attribute") && !name.equals("field")) {
+					throw new ParseException("Invalid tag: " + name, 0);
+				}
+				if (superType != null) {
+					throw new ParseException("Currently supertype unmarshalling is not supported for non-structures", 0);
+				}
+				List<?> enumerations = unmarshalEnumerations(cursor, type);
+				if (!enumerations.isEmpty()) {
+					properties.add(new ValueImpl(ENUMERATION, enumerations));
+				}
+				structure.add(newElement(type, structure, name.equals("attribute"), properties));
+			}
+		}
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected List<?> unmarshalEnumerations(DefinitionCursor cursor, SimpleType<?> type) throws ParseException {
+		List enumerations = new ArrayList();
+		while (cursor.next()) {
+			if (cursor.getName().equals("enumeration")) {
+				enumerations.add(intern(converter.convert(cursor.getText(), type.getInstanceClass())));
+			}
+			else {
+				throw new ParseException("Unexpected tag " + cursor.getName(), 0);
+			}
 		}
+		return enumerations;
 	}
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	protected List<?> unmarshalEnumerations(Element element, SimpleType<?> type) throws ParseException {
 		List enumerations = new ArrayList();
-		for (int i = 0; i < element.getChildNodes().getLength(); i++) {
-			if (element.getChildNodes().item(i).getNodeType() == Node.ELEMENT_NODE) {
-				Element child = (Element) element.getChildNodes().item(i);
+		for (Node node = element.getFirstChild(); node != null; node = node.getNextSibling()) {
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				Element child = (Element) node;
 				if (child.getNodeName().equals("enumeration")) {
-					enumerations.add(converter.convert(child.getTextContent(), type.getInstanceClass()));
+					enumerations.add(intern(converter.convert(child.getTextContent(), type.getInstanceClass())));
 				}
 				else {
 					throw new ParseException("Unexpected tag " + child.getNodeName(), 0);
@@ -258,45 +777,62 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 	 * This method is rather more complicated than you would imagine because types can change their "supported properties" while you set new values
 	 * For example the String wrapper has an "actualType" property and it will add all the properties of whatever you set there 
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	protected List<Value<?>> unmarshalAttributes(Element element, Type type, String...ignore) throws ParseException {
-		List<String> existingAttributes = new ArrayList<String>();
-		NamedNodeMap attributes = element.getAttributes();
+		Map<String, String> attributes = new LinkedHashMap<String, String>();
+		NamedNodeMap nodes = element.getAttributes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Attr attribute = (Attr) nodes.item(i);
+			attributes.put(attribute.getName(), attribute.getValue());
+		}
+		return unmarshalAttributes(attributes, type, ignore);
+	}
+	
+	protected List<Value<?>> unmarshalAttributes(Map<String, String> attributes, Type type, String...ignore) throws ParseException {
+		DefinitionMetrics metrics = getMetrics();
+		long started = metrics == null ? 0 : System.nanoTime();
+		try {
+			return bindAttributes(attributes, type, ignore);
+		}
+		finally {
+			if (metrics != null) {
+				metrics.add(DefinitionMetrics.Phase.BIND, started);
+			}
+		}
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<Value<?>> bindAttributes(Map<String, String> attributes, Type type, String...ignore) throws ParseException {
+		Set<String> existingAttributes = new LinkedHashSet<String>();
 		List<String> attributesToIgnore = Arrays.asList(ignore);
-		for (int i = 0; i < attributes.getLength(); i++) {
-			Attr attribute = (Attr) attributes.item(i);
-			if (attribute.getValue() != null && !attribute.getValue().isEmpty() && !attributesToIgnore.contains(attribute.getName()))
-				existingAttributes.add(attribute.getName());
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			if (attribute.getValue() != null && !attribute.getValue().isEmpty() && !attributesToIgnore.contains(attribute.getKey()))
+				existingAttributes.add(attribute.getKey());
 		}
 		List<Value<?>> values = new ArrayList<Value<?>>();
+		// identifies the values bound so far, the supported properties can depend on them
+		StringBuilder state = new StringBuilder();
 		int count = existingAttributes.size() + 1;
-		while(existingAttributes.size() < count) {
-			count = existingAttributes.size();			
-			List<Property<?>> supportedProperties = new ArrayList<Property<?>>(type.getSupportedProperties(values.toArray(new Value<?>[0])));
-			supportedProperties.add(ElementQualifiedDefaultProperty.getInstance());
-			supportedProperties.add(AttributeQualifiedDefaultProperty.getInstance());
-			supportedProperties.add(QualifiedProperty.getInstance());
-			supportedProperties.add(CollectionHandlerProviderProperty.getInstance());
-			for (Property<?> property : supportedProperties) {
-				if (existingAttributes.contains(property.getName())) {
-					Object value;
-					// need to support "unbounded"
-					if (MaxOccursProperty.getInstance().equals(property)) {
-						value = element.getAttribute(property.getName()).equals("unbounded") ? 0 : new Integer(element.getAttribute(property.getName()));
-					}
-					else if (CollectionHandlerProviderProperty.getInstance().equals(property)) {
-						String attribute = element.getAttribute(property.getName());
-						if ("stringMap".equals(attribute)) {
-							value = new StringMapCollectionHandlerProvider();
-						}
-						else {
-							throw new ParseException("Unknown collection handler provider", 0);
+		// once everything is bound there is no need for another pass
+		while(!existingAttributes.isEmpty() && existingAttributes.size() < count) {
+			count = existingAttributes.size();
+			Map<String, Property<?>> supportedProperties = bindingIndex.getBindings(type, state.toString(), values.toArray(new Value<?>[values.size()]));
+			for (Map.Entry<String, Property<?>> entry : supportedProperties.entrySet()) {
+				if (existingAttributes.contains(entry.getKey())) {
+					Property<?> property = entry.getValue();
+					String attribute = attributes.get(property.getName());
+					// the codec takes care of special cases like "unbounded" for maxOccurs and the string map collection handler
+					Object value = codecs.getCodec(property).parse(attribute);
+					Value<?> bound = newValue((Property) property, value);
+					// the name is unique for every element and does not change the supported properties, leave it out of the state so it can be cached
+					if (!NameProperty.getInstance().equals(property)) {
+						state.append(property.getName());
+						// free text like comments only adds its name, otherwise every distinct value would be a new state
+						if (bindingIndex.isDependent(type, bound, values.toArray(new Value<?>[values.size()]))) {
+							state.append('=').append(attribute);
 						}
+						state.append('\u0000');
 					}
-					else {
-						value = converter.convert(element.getAttribute(property.getName()), property.getValueClass());
-					}
-					values.add(new ValueImpl(property, value));
+					values.add(bound);
 					existingAttributes.remove(property.getName());
 				}
 			}
@@ -307,13 +843,46 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 		return values;
 	}
 		
+	/**
+	 * Creates a field or attribute, the enumerations (if any) are already in the properties so the complete declaration is known up front and can be shared
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected be.nabu.libs.types.api.Element<?> newElement(SimpleType<?> type, ModifiableComplexType parent, boolean attribute, List<Value<?>> properties) {
+		if (sharedPropertiesPool != null) {
+			SharedProperties shared = sharedPropertiesPool.share(type, attribute, properties);
+			Value<?> name = null;
+			for (Value<?> value : properties) {
+				if (NameProperty.getInstance().equals(value.getProperty())) {
+					name = value;
+				}
+			}
+			Value<?> [] own = name == null ? new Value<?>[0] : new Value<?> [] { name };
+			return attribute ? new SharedAttribute(type, parent, shared, own) : new SharedSimpleElement(type, parent, shared, own);
+		}
+		Value<?> [] values = properties.toArray(new Value<?>[properties.size()]);
+		return attribute ? new AttributeImpl(type, parent, values) : new SimpleElementImpl(type, parent, values);
+	}
+	
+	protected <T> Value<T> newValue(Property<T> property, T value) {
+		return interner == null ? new ValueImpl<T>(property, value) : interner.getValue(property, value);
+	}
+	
+	protected Object intern(Object value) {
+		return interner != null && value instanceof String ? interner.intern((String) value) : value;
+	}
+	
 	public static Document toDocument(InputStream xml) throws SAXException, IOException, ParserConfigurationException {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		// no DTD
-		factory.setValidating(false);
-		// Good practice
-		factory.setNamespaceAware(true);
-		return factory.newDocumentBuilder().parse(xml);
+		DocumentBuilder builder = XMLFactoryPool.acquireDocumentBuilder(true);
+		try {
+			return builder.parse(xml);
+		}
+		finally {
+			XMLFactoryPool.release(builder);
+		}
+	}
+	
+	public static XMLStreamReader toStreamReader(InputStream xml) throws XMLStreamException {
+		return XMLFactoryPool.getInputFactory().createXMLStreamReader(xml);
 	}
 
 	public Converter getConverter() {
@@ -322,6 +891,15 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 
 	public void setConverter(Converter converter) {
 		this.converter = converter;
+		this.codecs = new PropertyCodecs(converter);
+	}
+
+	public PropertyCodecs getCodecs() {
+		return codecs;
+	}
+
+	public void setCodecs(PropertyCodecs codecs) {
+		this.codecs = codecs;
 	}
 
 	public SimpleTypeWrapper getSimpleTypeWrapper() {
@@ -330,6 +908,24 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 
 	public void setSimpleTypeWrapper(SimpleTypeWrapper simpleTypeWrapper) {
 		this.simpleTypeWrapper = simpleTypeWrapper;
+		// the resolved types depend on the wrapper
+		this.simpleTypeCache = new SimpleTypeCache();
+	}
+
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	public void setClassLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	public SimpleTypeCache getSimpleTypeCache() {
+		return simpleTypeCache;
+	}
+
+	public void setSimpleTypeCache(SimpleTypeCache simpleTypeCache) {
+		this.simpleTypeCache = simpleTypeCache;
 	}
 
 	public DefinedTypeResolver getTypeResolver() {
@@ -348,8 +944,61 @@ public class XMLDefinitionUnmarshaller implements DefinitionUnmarshaller {
 		this.ignoreUnknown = ignoreUnknown;
 	}
 
+	/**
+	 * The ignored references of the last call that finished, this is not reliable if the unmarshaller is shared
+	 * @deprecated pass in an {@link UnmarshalContext} and use its ignored references instead
+	 */
+	@Deprecated
 	public List<String> getIgnoredReferences() {
 		return ignoredReferences;
 	}
+
+	public AttributeBindingIndex getBindingIndex() {
+		return bindingIndex;
+	}
+
+	public void setBindingIndex(AttributeBindingIndex bindingIndex) {
+		this.bindingIndex = bindingIndex;
+	}
+
+	public DefinitionInterner getInterner() {
+		return interner;
+	}
+
+	public void setInterner(DefinitionInterner interner) {
+		this.interner = interner;
+	}
+
+	public SharedPropertiesPool getSharedPropertiesPool() {
+		return sharedPropertiesPool;
+	}
+
+	public void setSharedPropertiesPool(SharedPropertiesPool sharedPropertiesPool) {
+		this.sharedPropertiesPool = sharedPropertiesPool;
+	}
+
+	public DefinitionListener getListener() {
+		return listener;
+	}
+
+	public void setListener(DefinitionListener listener) {
+		this.listener = listener;
+	}
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
 	
 }
@@ -0,0 +1,195 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a definition as xml in a single pass, indentation is done with tabs as it is written
+ * The output is the same as what the JAXP transformer generates (alphabetical attributes, same escaping) so switching between the two does not show up in diffs
+ */
+public class XMLDefinitionWriter implements DefinitionWriter {
+
+	private Writer writer;
+	private String encoding;
+	private CharsetEncoder encoder;
+	private boolean omitXMLDeclaration, prettyPrint;
+	
+	private List<String> names = new ArrayList<String>();
+	private List<Boolean> hasChildren = new ArrayList<Boolean>();
+	private Map<String, String> attributes = new TreeMap<String, String>();
+	/**
+	 * The start tag of the current element has not been written yet, this allows us to collect (and sort) the attributes and to choose between "/>" and a closing tag
+	 */
+	private boolean pending;
+	private boolean started;
+	
+	public XMLDefinitionWriter(OutputStream output, String encoding, boolean omitXMLDeclaration, boolean prettyPrint) {
+		this(new BufferedWriter(new OutputStreamWriter(output, Charset.forName(encoding))), encoding, omitXMLDeclaration, prettyPrint);
+	}
+	
+	public XMLDefinitionWriter(Writer writer, String encoding, boolean omitXMLDeclaration, boolean prettyPrint) {
+		this.writer = writer;
+		this.encoding = encoding;
+		this.omitXMLDeclaration = omitXMLDeclaration;
+		this.prettyPrint = prettyPrint;
+		Charset charset = Charset.forName(encoding);
+		// only check whether characters can be encoded if the charset can not encode everything
+		if (!charset.name().startsWith("UTF-")) {
+			this.encoder = charset.newEncoder();
+		}
+	}
+
+	@Override
+	public void start(String name) throws IOException {
+		if (!started) {
+			started = true;
+			if (!omitXMLDeclaration) {
+				writer.write("<?xml version=\"1.0\" encoding=\"" + encoding + "\" standalone=\"no\"?>");
+				newLine(0);
+			}
+		}
+		else {
+			writePending();
+			hasChildren.set(hasChildren.size() - 1, true);
+			newLine(names.size());
+		}
+		names.add(name);
+		hasChildren.add(false);
+		pending = true;
+	}
+
+	@Override
+	public void attribute(String name, String value) throws IOException {
+		if (!pending) {
+			throw new IllegalStateException("Can not set attribute '" + name + "' after the content of element '" + names.get(names.size() - 1) + "' has been written");
+		}
+		attributes.put(name, value);
+	}
+
+	@Override
+	public void text(String text) throws IOException {
+		// an empty text is not written, like in the DOM
+		if (text == null || text.isEmpty()) {
+			return;
+		}
+		writePending();
+		escape(text, false);
+	}
+
+	@Override
+	public void end() throws IOException {
+		boolean empty = pending;
+		// the pending start tag still needs the name of this element, only pop once it is written
+		if (pending) {
+			writeStartTag();
+			writer.write("/>");
+			pending = false;
+		}
+		String name = names.remove(names.size() - 1);
+		boolean children = hasChildren.remove(hasChildren.size() - 1);
+		if (!empty) {
+			if (children) {
+				newLine(names.size());
+			}
+			writer.write("</");
+			writer.write(name);
+			writer.write(">");
+		}
+		// the transformer ends an indented document with a linefeed
+		if (names.isEmpty() && prettyPrint) {
+			writer.write("\n");
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+	
+	private void writePending() throws IOException {
+		if (pending) {
+			writeStartTag();
+			writer.write(">");
+			pending = false;
+		}
+	}
+	
+	private void writeStartTag() throws IOException {
+		writer.write("<");
+		writer.write(names.get(names.size() - 1));
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			writer.write(" ");
+			writer.write(attribute.getKey());
+			writer.write("=\"");
+			escape(attribute.getValue(), true);
+			writer.write("\"");
+		}
+		attributes.clear();
+	}
+	
+	private void newLine(int depth) throws IOException {
+		if (prettyPrint) {
+			writer.write("\n");
+			for (int i = 0; i < depth; i++) {
+				writer.write("\t");
+			}
+		}
+	}
+	
+	private void escape(String value, boolean attribute) throws IOException {
+		for (int i = 0; i < value.length(); i++) {
+			char character = value.charAt(i);
+			switch (character) {
+				case '&': writer.write("&amp;"); break;
+				case '<': writer.write("&lt;"); break;
+				case '>': writer.write("&gt;"); break;
+				case '\r': writer.write("&#13;"); break;
+				case '"':
+					writer.write(attribute ? "&quot;" : "\"");
+				break;
+				case '\n':
+					writer.write(attribute ? "&#10;" : "\n");
+				break;
+				case '\t':
+					writer.write(attribute ? "&#9;" : "\t");
+				break;
+				default:
+					if (encoder != null && !encoder.canEncode(character)) {
+						int codePoint = Character.codePointAt(value, i);
+						writer.write("&#" + codePoint + ";");
+						i += Character.charCount(codePoint) - 1;
+					}
+					else {
+						writer.write(character);
+					}
+			}
+		}
+	}
+}
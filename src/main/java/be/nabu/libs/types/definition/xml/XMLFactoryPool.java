@@ -0,0 +1,134 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+/**
+ * Creating the JAXP factories is expensive (service lookups, configuration...) so we keep configured instances per thread and reset them between uses
+ * Instances are acquired and released which means reentrant use on the same thread (e.g. a resolver that unmarshals another definition) simply gets a second instance
+ */
+public class XMLFactoryPool {
+	
+	/**
+	 * How many idle instances of each kind we keep per thread
+	 */
+	private static final int MAX_IDLE = 4;
+	
+	private static DocumentBuilderFactory namespaceAwareBuilderFactory = newDocumentBuilderFactory(true);
+	private static DocumentBuilderFactory builderFactory = newDocumentBuilderFactory(false);
+	private static TransformerFactory transformerFactory = TransformerFactory.newInstance();
+	
+	private static ThreadLocal<Deque<DocumentBuilder>> namespaceAwareBuilders = newPool();
+	private static ThreadLocal<Deque<DocumentBuilder>> builders = newPool();
+	private static ThreadLocal<Deque<Transformer>> transformers = newPool();
+	private static ThreadLocal<XMLInputFactory> inputFactories = new ThreadLocal<XMLInputFactory>() {
+		@Override
+		protected XMLInputFactory initialValue() {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			// no DTD
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+			return factory;
+		}
+	};
+	
+	private static DocumentBuilderFactory newDocumentBuilderFactory(boolean namespaceAware) {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		// no DTD
+		factory.setValidating(false);
+		factory.setNamespaceAware(namespaceAware);
+		return factory;
+	}
+	
+	private static <T> ThreadLocal<Deque<T>> newPool() {
+		return new ThreadLocal<Deque<T>>() {
+			@Override
+			protected Deque<T> initialValue() {
+				return new ArrayDeque<T>();
+			}
+		};
+	}
+	
+	public static DocumentBuilder acquireDocumentBuilder(boolean namespaceAware) throws ParserConfigurationException {
+		DocumentBuilder builder = (namespaceAware ? namespaceAwareBuilders : builders).get().poll();
+		if (builder == null) {
+			DocumentBuilderFactory factory = namespaceAware ? namespaceAwareBuilderFactory : builderFactory;
+			// the factory itself is not guaranteed to be thread safe
+			synchronized(factory) {
+				builder = factory.newDocumentBuilder();
+			}
+		}
+		return builder;
+	}
+	
+	public static void release(DocumentBuilder builder) {
+		builder.reset();
+		Deque<DocumentBuilder> pool = (builder.isNamespaceAware() ? namespaceAwareBuilders : builders).get();
+		if (pool.size() < MAX_IDLE) {
+			pool.push(builder);
+		}
+	}
+	
+	public static Transformer acquireTransformer() throws TransformerConfigurationException {
+		Transformer transformer = transformers.get().poll();
+		if (transformer == null) {
+			synchronized(transformerFactory) {
+				transformer = transformerFactory.newTransformer();
+			}
+		}
+		return transformer;
+	}
+	
+	public static void release(Transformer transformer) {
+		// this also clears the output properties
+		transformer.reset();
+		Deque<Transformer> pool = transformers.get();
+		if (pool.size() < MAX_IDLE) {
+			pool.push(transformer);
+		}
+	}
+	
+	/**
+	 * The stream reader factory is stateless once configured, it is kept per thread because implementations are not required to be thread safe
+	 */
+	public static XMLInputFactory getInputFactory() {
+		return inputFactories.get();
+	}
+	
+	/**
+	 * Drops all the instances cached for the current thread, use this before returning a thread to a pool you do not own
+	 */
+	public static void clear() {
+		namespaceAwareBuilders.remove();
+		builders.remove();
+		transformers.remove();
+		inputFactories.remove();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+
+import org.junit.Test;
+
+import be.nabu.libs.property.api.Property;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.properties.CommentProperty;
+import be.nabu.libs.types.properties.QualifiedProperty;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+public class AttributeBindingIndexTest {
+
+	@Test
+	public void bindingsAreRebuiltWhenTheTypeChanges() {
+		AttributeBindingIndex index = new AttributeBindingIndex();
+		DefinedStructure structure = new DefinedStructure();
+		structure.setId("test.structure");
+		
+		Map<String, Property<?>> bindings = index.getBindings(structure, "");
+		assertSame(bindings, index.getBindings(structure, ""));
+		// the properties that are always supported
+		assertTrue(bindings.containsKey(QualifiedProperty.getInstance().getName()));
+		// every state has its own bindings
+		assertNotSame(bindings, index.getBindings(structure, "name=test"));
+		
+		structure.setProperty(new ValueImpl<String>(CommentProperty.getInstance(), "changed"));
+		Map<String, Property<?>> modified = index.getBindings(structure, "");
+		assertNotSame(bindings, modified);
+		assertSame(modified, index.getBindings(structure, ""));
+		
+		DefinedStructure superType = new DefinedStructure();
+		superType.setId("test.superType");
+		structure.setSuperType(superType);
+		Map<String, Property<?>> extended = index.getBindings(structure, "");
+		assertNotSame(modified, extended);
+		assertSame(extended, index.getBindings(structure, ""));
+		
+		index.invalidate(structure);
+		assertNotSame(extended, index.getBindings(structure, ""));
+	}
+	
+	@Test
+	public void freeTextDoesNotFillTheStates() throws Exception {
+		AttributeBindingIndex index = new AttributeBindingIndex();
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setBindingIndex(index);
+		SimpleType<?> type = null;
+		for (int i = 0; i < 200; i++) {
+			ComplexType company = unmarshaller.unmarshal(new ByteArrayInputStream(("<structure name=\"company\">"
+				+ "<field name=\"code" + i + "\" type=\"java.lang.String\" comment=\"Code number " + i + "\" pattern=\"[A-Z]{" + i + "}\"/>"
+				+ "</structure>").getBytes("UTF-8")));
+			type = (SimpleType<?>) company.get("code" + i).getType();
+		}
+		// comments and patterns do not change the supported properties so all the fields share a handful of states
+		assertTrue(index.getStateCount(type) < 10);
+		
+		Map<String, Property<?>> bindings = index.getBindings(type, "comment\u0000pattern\u0000");
+		assertSame(bindings, index.getBindings(type, "comment\u0000pattern\u0000"));
+		assertFalse(index.isDependent(type, new ValueImpl<String>(CommentProperty.getInstance(), "anything")));
+	}
+}
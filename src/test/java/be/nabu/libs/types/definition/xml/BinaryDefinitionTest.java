@@ -0,0 +1,126 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.api.ComplexType;
+
+public class BinaryDefinitionTest {
+
+	private static final String DEFINITION = "<structure name=\"company\" namespace=\"be.nabu.test\">\n"
+		+ "\t<attribute name=\"id\" type=\"java.lang.String\"/>\n"
+		+ "\t<field maxOccurs=\"unbounded\" minOccurs=\"0\" name=\"tags\" type=\"java.lang.String\"/>\n"
+		+ "\t<field name=\"currency\" type=\"java.lang.String\">\n"
+		+ "\t\t<enumeration>EUR</enumeration>\n"
+		+ "\t\t<enumeration>USD</enumeration>\n"
+		+ "\t</field>\n"
+		+ "\t<structure maxOccurs=\"unbounded\" name=\"employees\">\n"
+		+ "\t\t<field name=\"firstName\" type=\"java.lang.String\"/>\n"
+		+ "\t\t<field name=\"age\" type=\"java.lang.Integer\"/>\n"
+		+ "\t</structure>\n"
+		+ "</structure>\n";
+
+	@Test
+	public void binaryRoundTripIsLossless() throws Exception {
+		for (String definition : new String [] { DEFINITION, "<structure minOccurs=\"-1\" name=\"negative\" version=\"007\"/>\n" }) {
+			ByteArrayOutputStream binary = new ByteArrayOutputStream();
+			DefinitionTranscoder.toBinary(new ByteArrayInputStream(definition.getBytes("UTF-8")), binary);
+			if (definition == DEFINITION) {
+				assertTrue(binary.size() < definition.length());
+			}
+			
+			ByteArrayOutputStream xml = new ByteArrayOutputStream();
+			DefinitionTranscoder.toXML(new ByteArrayInputStream(binary.toByteArray()), xml, "UTF-8", true);
+			assertEquals(definition, new String(xml.toByteArray(), "UTF-8"));
+		}
+	}
+	
+	@Test
+	public void binaryUnmarshalMatchesXMLUnmarshal() throws Exception {
+		ComplexType fromXML = new XMLDefinitionUnmarshaller().unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		new BinaryDefinitionMarshaller().marshal(binary, fromXML);
+		ComplexType fromBinary = new BinaryDefinitionUnmarshaller().unmarshal(new ByteArrayInputStream(binary.toByteArray()));
+		
+		assertEquals(marshal(fromXML), marshal(fromBinary));
+	}
+	
+	@Test
+	public void corruptStringLengthsAreRejected() throws Exception {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		binary.write(BinaryDefinitionWriter.MAGIC);
+		binary.write(BinaryDefinitionWriter.VERSION);
+		binary.write(BinaryDefinitionWriter.EVENT_START);
+		// a new string with a length of 2^35
+		binary.write(0);
+		binary.write(new byte [] { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01 });
+		try {
+			new BinaryDefinitionCursor(new ByteArrayInputStream(binary.toByteArray())).next();
+			fail("The length exceeds any sane string");
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage().contains("Invalid string length"));
+		}
+	}
+	
+	@Test
+	public void binaryMarshalReportsMetrics() throws Exception {
+		ComplexType type = new XMLDefinitionUnmarshaller().unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		final List<DefinitionMetrics> marshalled = new ArrayList<DefinitionMetrics>();
+		BinaryDefinitionMarshaller marshaller = new BinaryDefinitionMarshaller();
+		marshaller.setListener(new DefinitionListener() {
+			@Override
+			public void marshalled(DefinitionMetrics metrics) {
+				marshalled.add(metrics);
+			}
+			@Override
+			public void unmarshalled(DefinitionMetrics metrics) {
+				// not used
+			}
+		});
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		marshaller.marshal(binary, type);
+		assertEquals(1, marshalled.size());
+		assertEquals(binary.size(), marshalled.get(0).getBytes());
+		assertTrue(marshalled.get(0).getElements() > 0);
+		
+		// the listener does not change the output
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		new BinaryDefinitionMarshaller().marshal(plain, type);
+		assertEquals(new String(plain.toByteArray(), "ISO-8859-1"), new String(binary.toByteArray(), "ISO-8859-1"));
+	}
+	
+	private String marshal(ComplexType type) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new XMLDefinitionMarshaller().marshal(output, type);
+		return new String(output.toByteArray(), "UTF-8");
+	}
+}
@@ -0,0 +1,174 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.DefinedTypeResolver;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+public class CachingDefinedTypeResolverTest {
+
+	@Test
+	public void concurrentLookupsOfTheSameIdOnlyLoadOnce() throws Exception {
+		final AtomicInteger loads = new AtomicInteger();
+		final DefinedStructure structure = new DefinedStructure();
+		final CachingDefinedTypeResolver resolver = new CachingDefinedTypeResolver(new DefinedTypeResolver() {
+			@Override
+			public DefinedType resolve(String id) {
+				loads.incrementAndGet();
+				try {
+					Thread.sleep(100);
+				}
+				catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				return "unknown".equals(id) ? null : structure;
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<DefinedType>> futures = new ArrayList<Future<DefinedType>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(new Callable<DefinedType>() {
+					@Override
+					public DefinedType call() throws Exception {
+						return resolver.resolve("popular");
+					}
+				}));
+			}
+			for (Future<DefinedType> future : futures) {
+				assertSame(structure, future.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, resolver.getMisses());
+		assertEquals(7, resolver.getHits() + resolver.getWaits());
+		
+		assertNull(resolver.resolve("unknown"));
+		assertNull(resolver.resolve("unknown"));
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	public void mutualReferencesOnDifferentThreadsDoNotDeadlock() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// the race is between checking the wait graph and registering in it, repeat to give it a chance to occur
+			for (int i = 0; i < 100; i++) {
+				final CyclicBarrier barrier = new CyclicBarrier(2);
+				final ThreadLocal<Boolean> nested = new ThreadLocal<Boolean>();
+				final DefinedStructure a = new DefinedStructure(), b = new DefinedStructure();
+				final CachingDefinedTypeResolver[] resolver = new CachingDefinedTypeResolver[1];
+				resolver[0] = new CachingDefinedTypeResolver(new DefinedTypeResolver() {
+					@Override
+					public DefinedType resolve(String id) {
+						if (nested.get() == null) {
+							nested.set(true);
+							try {
+								// both loads are in flight before either of them references the other
+								barrier.await(10, TimeUnit.SECONDS);
+								resolver[0].resolve(id.equals("a") ? "b" : "a");
+							}
+							catch (Exception e) {
+								throw new RuntimeException(e);
+							}
+							finally {
+								nested.remove();
+							}
+						}
+						return id.equals("a") ? a : b;
+					}
+				});
+				Future<DefinedType> first = executor.submit(new Callable<DefinedType>() {
+					@Override
+					public DefinedType call() throws Exception {
+						return resolver[0].resolve("a");
+					}
+				});
+				Future<DefinedType> second = executor.submit(new Callable<DefinedType>() {
+					@Override
+					public DefinedType call() throws Exception {
+						return resolver[0].resolve("b");
+					}
+				});
+				assertSame(a, first.get(10, TimeUnit.SECONDS));
+				assertSame(b, second.get(10, TimeUnit.SECONDS));
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void completedLoadsAreNotRepeated() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// a thread that checked the cache just before another load completed should not load again
+			for (int i = 0; i < 200; i++) {
+				final AtomicInteger loads = new AtomicInteger();
+				final DefinedStructure structure = new DefinedStructure();
+				final CachingDefinedTypeResolver resolver = new CachingDefinedTypeResolver(new DefinedTypeResolver() {
+					@Override
+					public DefinedType resolve(String id) {
+						loads.incrementAndGet();
+						return structure;
+					}
+				});
+				final CyclicBarrier barrier = new CyclicBarrier(4);
+				List<Future<DefinedType>> futures = new ArrayList<Future<DefinedType>>();
+				for (int j = 0; j < 4; j++) {
+					futures.add(executor.submit(new Callable<DefinedType>() {
+						@Override
+						public DefinedType call() throws Exception {
+							barrier.await(10, TimeUnit.SECONDS);
+							return resolver.resolve("fast");
+						}
+					}));
+				}
+				for (Future<DefinedType> future : futures) {
+					assertSame(structure, future.get(10, TimeUnit.SECONDS));
+				}
+				assertEquals(1, loads.get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+}
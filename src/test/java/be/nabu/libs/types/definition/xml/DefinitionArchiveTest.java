@@ -0,0 +1,122 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+
+public class DefinitionArchiveTest {
+
+	private static final String COMPANY = "<structure name=\"company\" namespace=\"be.nabu.test\">\n"
+		+ "\t<field name=\"name\" type=\"java.lang.String\"/>\n"
+		+ "\t<field name=\"currency\" type=\"java.lang.String\">\n"
+		+ "\t\t<enumeration>EUR</enumeration>\n"
+		+ "\t\t<enumeration>USD</enumeration>\n"
+		+ "\t</field>\n"
+		+ "</structure>";
+	
+	private static final String EMPLOYEE = "<structure name=\"employee\">\n"
+		+ "\t<field name=\"firstName\" type=\"java.lang.String\"/>\n"
+		+ "</structure>";
+	
+	@Test
+	public void definitionsAreResolvedFromTheArchive() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		ComplexType company = unmarshaller.unmarshal(new ByteArrayInputStream(COMPANY.getBytes("UTF-8")));
+		
+		Path file = Files.createTempFile("definitions", ".ndar");
+		try {
+			DefinitionArchiveWriter writer = new DefinitionArchiveWriter(file, new XMLDefinitionMarshaller());
+			try {
+				writer.add("test.company", company);
+				writer.add("test.employee", new ByteArrayInputStream(EMPLOYEE.getBytes("UTF-8")));
+			}
+			finally {
+				writer.close();
+			}
+			
+			DefinitionArchive archive = new DefinitionArchive(file, new XMLDefinitionUnmarshaller());
+			try {
+				assertEquals(2, archive.getIds().size());
+				DefinedType resolved = archive.resolve("test.company");
+				assertEquals("test.company", resolved.getId());
+				assertEquals(marshal(company), marshal((ComplexType) resolved));
+				assertEquals("firstName", ((ComplexType) archive.resolve("test.employee")).iterator().next().getName());
+				assertNull(archive.resolve("test.unknown"));
+			}
+			finally {
+				archive.close();
+			}
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	public void idsAreNotLimitedToAscii() throws Exception {
+		// supplementary characters are encoded differently in the modified UTF-8 that is used for the index
+		String id = "test.caf\u00e9.\uD83D\uDE00";
+		Path file = Files.createTempFile("definitions", ".ndar");
+		try {
+			DefinitionArchiveWriter writer = new DefinitionArchiveWriter(file, new XMLDefinitionMarshaller());
+			try {
+				writer.add(id, new ByteArrayInputStream(EMPLOYEE.getBytes("UTF-8")));
+			}
+			finally {
+				writer.close();
+			}
+			DefinitionArchive archive = new DefinitionArchive(file, new XMLDefinitionUnmarshaller());
+			try {
+				assertEquals(id, archive.getIds().iterator().next());
+				assertEquals(id, archive.resolve(id).getId());
+			}
+			finally {
+				archive.close();
+			}
+			try {
+				archive.resolve(id);
+				fail("A closed archive can not be used");
+			}
+			catch (IllegalStateException e) {
+				// expected
+			}
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+	
+	private String marshal(ComplexType type) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new XMLDefinitionMarshaller().marshal(output, type);
+		return new String(output.toByteArray(), "UTF-8");
+	}
+}
@@ -0,0 +1,162 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.Group;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.properties.NameProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class DefinitionFingerprinterTest {
+
+	@Test
+	public void fingerprintOnlyDependsOnContent() throws Exception {
+		ComplexType pretty = unmarshal("<structure name=\"company\" namespace=\"be.nabu.test\">\n"
+			+ "\t<field name=\"currency\" type=\"java.lang.String\" minOccurs=\"0\">\n"
+			+ "\t\t<enumeration>EUR</enumeration>\n"
+			+ "\t</field>\n"
+			+ "\t<structure name=\"address\"><field name=\"street\" type=\"java.lang.String\"/></structure>\n"
+			+ "</structure>");
+		ComplexType compact = unmarshal("<structure namespace=\"be.nabu.test\" name=\"company\"><field minOccurs=\"0\" type=\"java.lang.String\" name=\"currency\"><enumeration>EUR</enumeration></field>"
+			+ "<structure name=\"address\"><field type=\"java.lang.String\" name=\"street\"/></structure></structure>");
+		ComplexType changed = unmarshal("<structure namespace=\"be.nabu.test\" name=\"company\"><field minOccurs=\"0\" type=\"java.lang.String\" name=\"currency\"><enumeration>USD</enumeration></field>"
+			+ "<structure name=\"address\"><field type=\"java.lang.String\" name=\"street\"/></structure></structure>");
+		
+		DefinitionFingerprinter fingerprinter = new DefinitionFingerprinter();
+		String fingerprint = fingerprinter.getFingerprint(pretty);
+		assertEquals(64, fingerprint.length());
+		assertEquals(fingerprint, fingerprinter.getFingerprint(pretty));
+		assertEquals(fingerprint, fingerprinter.getFingerprint(compact));
+		assertFalse(fingerprint.equals(fingerprinter.getFingerprint(changed)));
+		
+		fingerprinter.setCaching(false);
+		fingerprinter.setPrettyPrint(false);
+		assertEquals(fingerprint, fingerprinter.getFingerprint(compact));
+	}
+	
+	@Test
+	public void modifiedTypesAreFingerprintedAgain() throws Exception {
+		Structure company = (Structure) unmarshal("<structure name=\"company\"><structure name=\"address\"><field name=\"street\" type=\"java.lang.String\"/></structure></structure>");
+		DefinitionFingerprinter fingerprinter = new DefinitionFingerprinter();
+		DefinitionFingerprinter uncached = new DefinitionFingerprinter();
+		uncached.setCaching(false);
+		String original = fingerprinter.getFingerprint(company);
+		
+		// a change in a nested type invalidates the types that contain it
+		Structure address = (Structure) company.get("address").getType();
+		address.add(new SimpleElementImpl<String>("city", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), address));
+		String modified = fingerprinter.getFingerprint(company);
+		assertFalse(original.equals(modified));
+		assertEquals(uncached.getFingerprint(company), modified);
+		
+		company.setProperty(new ValueImpl<String>(NameProperty.getInstance(), "otherCompany"));
+		assertEquals(uncached.getFingerprint(company), fingerprinter.getFingerprint(company));
+		assertFalse(modified.equals(fingerprinter.getFingerprint(company)));
+	}
+	
+	@Test
+	public void modifiedGroupsAreFingerprintedAgain() throws Exception {
+		GroupedStructure company = newGroupedStructure();
+		DefinitionFingerprinter fingerprinter = new DefinitionFingerprinter();
+		DefinitionFingerprinter uncached = new DefinitionFingerprinter();
+		uncached.setCaching(false);
+		String original = fingerprinter.getFingerprint(company);
+		
+		List<Element<?>> members = new ArrayList<Element<?>>();
+		members.add(company.get("name"));
+		company.groups = new Group [] { newGroup(members) };
+		String grouped = fingerprinter.getFingerprint(company);
+		assertFalse(original.equals(grouped));
+		assertEquals(uncached.getFingerprint(company), grouped);
+		
+		// a change within the group is noticed as well
+		members.add(company.get("vat"));
+		assertFalse(grouped.equals(fingerprinter.getFingerprint(company)));
+		assertEquals(uncached.getFingerprint(company), fingerprinter.getFingerprint(company));
+	}
+	
+	/**
+	 * The unmarshaller does not create groups, the structure exposes whatever groups are set
+	 */
+	static class GroupedStructure extends Structure {
+		Group [] groups;
+		
+		@Override
+		public Group [] getGroups() {
+			return groups;
+		}
+	}
+	
+	static GroupedStructure newGroupedStructure() {
+		GroupedStructure structure = new GroupedStructure();
+		structure.setName("company");
+		structure.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), structure));
+		structure.add(new SimpleElementImpl<String>("vat", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), structure));
+		return structure;
+	}
+	
+	/**
+	 * A group with the given (live) members and no properties
+	 */
+	static Group newGroup(final List<Element<?>> members) {
+		return (Group) Proxy.newProxyInstance(Group.class.getClassLoader(), new Class<?> [] { Group.class }, new InvocationHandler() {
+			private Value<?> [] properties = new Value<?>[0];
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("iterator")) {
+					return members.iterator();
+				}
+				else if (method.getName().equals("getProperties")) {
+					return properties;
+				}
+				else if (method.getName().equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				}
+				else if (method.getName().equals("equals")) {
+					return proxy == args[0];
+				}
+				else if (method.getName().equals("toString")) {
+					return "group" + members;
+				}
+				return null;
+			}
+		});
+	}
+	
+	private ComplexType unmarshal(String definition) throws Exception {
+		return new XMLDefinitionUnmarshaller().unmarshal(new ByteArrayInputStream(definition.getBytes("UTF-8")));
+	}
+}
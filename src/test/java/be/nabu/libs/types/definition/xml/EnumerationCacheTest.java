@@ -0,0 +1,92 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.api.SimpleType;
+
+public class EnumerationCacheTest {
+
+	@Test
+	public void marshalledEnumerationsAreReused() throws Exception {
+		SimpleType<?> type = new XMLDefinitionUnmarshaller().getSimpleType("java.lang.String");
+		List<String> codes = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			codes.add("CODE" + i);
+		}
+		EnumerationCache cache = new EnumerationCache();
+		List<String> marshalled = cache.marshal(type, codes);
+		assertEquals(codes, marshalled);
+		assertSame(marshalled, cache.marshal(type, codes));
+		
+		// a modified list is marshalled again
+		codes.add("EXTRA");
+		List<String> modified = cache.marshal(type, codes);
+		assertFalse(marshalled == modified);
+		assertEquals(5001, modified.size());
+		assertEquals(5001, codes.size());
+	}
+	
+	@Test
+	public void modifiedListsAreMarshalledAgain() throws Exception {
+		SimpleType<?> integer = new XMLDefinitionUnmarshaller().getSimpleType("java.lang.Integer");
+		List<Integer> codes = new ArrayList<Integer>();
+		for (int i = 0; i < 10; i++) {
+			codes.add(i);
+		}
+		EnumerationCache cache = new EnumerationCache();
+		List<String> marshalled = cache.marshal(integer, codes);
+		assertEquals("9", marshalled.get(9));
+		assertSame(marshalled, cache.marshal(integer, codes));
+		assertSame(marshalled, cache.marshal(integer, codes));
+		
+		// an in place modification that keeps the size is noticed as well
+		codes.set(0, 100);
+		assertEquals("100", cache.marshal(integer, codes).get(0));
+		
+		cache.invalidate(integer);
+		List<String> remarshalled = cache.marshal(integer, codes);
+		assertEquals("100", remarshalled.get(0));
+		assertSame(remarshalled, cache.marshal(integer, codes));
+	}
+	
+	@Test
+	public void resultsAreFoundByContent() throws Exception {
+		SimpleType<?> type = new XMLDefinitionUnmarshaller().getSimpleType("java.lang.String");
+		EnumerationCache cache = new EnumerationCache();
+		List<String> codes = new ArrayList<String>(Arrays.asList("Aa"));
+		List<String> marshalled = cache.marshal(type, codes);
+		// another list with the same values reuses the result
+		assertSame(marshalled, cache.marshal(type, new ArrayList<String>(Arrays.asList("Aa"))));
+		
+		// "Aa" and "BB" have the same hash code, the content is still compared
+		codes.set(0, "BB");
+		assertEquals(Arrays.asList("BB"), cache.marshal(type, codes));
+		assertEquals(Arrays.asList("Aa"), cache.marshal(type, Arrays.asList("Aa")));
+	}
+}
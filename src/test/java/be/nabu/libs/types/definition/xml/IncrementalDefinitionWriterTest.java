@@ -0,0 +1,153 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.Group;
+
+public class IncrementalDefinitionWriterTest {
+
+	@Test
+	public void unchangedDefinitionsAreSkipped() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		ComplexType company = unmarshaller.unmarshal(new ByteArrayInputStream("<structure name=\"company\"><field name=\"name\" type=\"java.lang.String\"/></structure>".getBytes("UTF-8")));
+		ComplexType employee = unmarshaller.unmarshal(new ByteArrayInputStream("<structure name=\"employee\"><field name=\"firstName\" type=\"java.lang.String\"/></structure>".getBytes("UTF-8")));
+		
+		Path directory = Files.createTempDirectory("definitions");
+		Path companyFile = directory.resolve("company.xml"), employeeFile = directory.resolve("employee.xml");
+		try {
+			Map<Path, ComplexType> definitions = new LinkedHashMap<Path, ComplexType>();
+			definitions.put(companyFile, company);
+			definitions.put(employeeFile, employee);
+			
+			IncrementalDefinitionWriter writer = new IncrementalDefinitionWriter(new XMLDefinitionMarshaller());
+			assertEquals(2, writer.save(definitions).getWritten().size());
+			assertEquals(2, writer.save(definitions).getSkipped().size());
+			
+			// a new writer has no cached state and compares against the files on disk
+			IncrementalDefinitionWriter other = new IncrementalDefinitionWriter(new XMLDefinitionMarshaller());
+			assertFalse(other.save(companyFile, company));
+			assertTrue(other.save(companyFile, employee));
+		}
+		finally {
+			Files.deleteIfExists(companyFile);
+			Files.deleteIfExists(employeeFile);
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void unchangedDefinitionsAreNotMarshalled() throws Exception {
+		ComplexType company = new XMLDefinitionUnmarshaller().unmarshal(new ByteArrayInputStream("<structure name=\"company\"><field name=\"name\" type=\"java.lang.String\"/></structure>".getBytes("UTF-8")));
+		final AtomicInteger marshalled = new AtomicInteger();
+		XMLDefinitionMarshaller marshaller = new XMLDefinitionMarshaller() {
+			@Override
+			public void marshal(OutputStream output, ComplexType type, Value<?>...values) throws IOException {
+				marshalled.incrementAndGet();
+				super.marshal(output, type, values);
+			}
+		};
+		Path directory = Files.createTempDirectory("definitions");
+		Path companyFile = directory.resolve("company.xml");
+		try {
+			IncrementalDefinitionWriter writer = new IncrementalDefinitionWriter(marshaller);
+			assertTrue(writer.save(companyFile, company));
+			assertFalse(writer.save(companyFile, company));
+			assertFalse(writer.save(companyFile, company));
+			assertEquals(1, marshalled.get());
+		}
+		finally {
+			Files.deleteIfExists(companyFile);
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void externalChangesAreDetected() throws Exception {
+		ComplexType company = new XMLDefinitionUnmarshaller().unmarshal(new ByteArrayInputStream("<structure name=\"company\"><field name=\"name\" type=\"java.lang.String\"/></structure>".getBytes("UTF-8")));
+		Path directory = Files.createTempDirectory("definitions");
+		Path companyFile = directory.resolve("company.xml");
+		try {
+			IncrementalDefinitionWriter writer = new IncrementalDefinitionWriter(new XMLDefinitionMarshaller());
+			assertTrue(writer.save(companyFile, company));
+			byte [] content = Files.readAllBytes(companyFile);
+			
+			Files.write(companyFile, "<structure name=\"edited\"/>".getBytes("UTF-8"));
+			assertTrue(writer.save(companyFile, company));
+			assertEquals(new String(content, "UTF-8"), new String(Files.readAllBytes(companyFile), "UTF-8"));
+			
+			Files.delete(companyFile);
+			assertTrue(writer.save(companyFile, company));
+			assertTrue(Files.exists(companyFile));
+			
+			// no temporary files are left behind
+			assertEquals(1, directory.toFile().list().length);
+		}
+		finally {
+			Files.deleteIfExists(companyFile);
+			Files.delete(directory);
+		}
+	}
+	
+	@Test
+	public void modifiedGroupsAreWrittenAgain() throws Exception {
+		DefinitionFingerprinterTest.GroupedStructure company = DefinitionFingerprinterTest.newGroupedStructure();
+		Path directory = Files.createTempDirectory("definitions");
+		Path companyFile = directory.resolve("company.xml");
+		try {
+			IncrementalDefinitionWriter writer = new IncrementalDefinitionWriter(new XMLDefinitionMarshaller());
+			assertTrue(writer.save(companyFile, company));
+			assertFalse(writer.save(companyFile, company));
+			
+			List<Element<?>> members = new ArrayList<Element<?>>();
+			members.add(company.get("name"));
+			company.groups = new Group [] { DefinitionFingerprinterTest.newGroup(members) };
+			assertTrue(writer.save(companyFile, company));
+			assertTrue(new String(Files.readAllBytes(companyFile), "UTF-8").contains("<member name=\"name\""));
+			assertFalse(writer.save(companyFile, company));
+			
+			members.add(company.get("vat"));
+			assertTrue(writer.save(companyFile, company));
+			assertTrue(new String(Files.readAllBytes(companyFile), "UTF-8").contains("<member name=\"vat\""));
+		}
+		finally {
+			Files.deleteIfExists(companyFile);
+			Files.delete(directory);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import be.nabu.libs.property.ValueUtils;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.DefinedTypeResolver;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.properties.NameProperty;
+
+public class LazyDefinedStructureTest {
+
+	private static final String DEFINITION = "<structure name=\"company\">\n"
+		+ "\t<field name=\"name\" type=\"java.lang.String\"/>\n"
+		+ "\t<structure name=\"employees\" maxOccurs=\"unbounded\">\n"
+		+ "\t\t<field name=\"firstName\" type=\"java.lang.String\"/>\n"
+		+ "\t</structure>\n"
+		+ "</structure>";
+	
+	@Test
+	public void childrenAreUnmarshalledOnFirstAccess() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setLazy(true);
+		ComplexType type = unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		assertTrue(type instanceof LazyDefinedStructure);
+		assertFalse(((LazyDefinedStructure) type).isMaterialized());
+		
+		assertNotNull(type.get("employees"));
+		assertTrue(((LazyDefinedStructure) type).isMaterialized());
+		assertEquals(marshal(new XMLDefinitionUnmarshaller().unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")))), marshal(type));
+	}
+	
+	@Test
+	public void failureIsRethrownOnEveryAccess() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setLazy(true);
+		// the root is fine, the unknown type is only encountered once the children are unmarshalled
+		ComplexType type = unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.replace("java.lang.String\"/>\n\t<structure", "be.nabu.Unknown\"/>\n\t<structure").getBytes("UTF-8")));
+		RuntimeException first = null;
+		try {
+			type.get("name");
+			fail("The unknown type should fail the materialization");
+		}
+		catch (RuntimeException e) {
+			first = e;
+		}
+		try {
+			type.iterator();
+			fail("A failed materialization should not result in an empty structure");
+		}
+		catch (RuntimeException e) {
+			assertSame(first, e);
+		}
+		assertFalse(((LazyDefinedStructure) type).isMaterialized());
+	}
+	
+	@Test
+	public void childrenCanBeAccessedWhileMaterializing() throws Exception {
+		final ComplexType [] holder = new ComplexType[1];
+		final int [] visited = new int[1];
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setLazy(true);
+		unmarshaller.setIgnoreUnknown(true);
+		// the resolver is called halfway through the materialization and looks at what is there so far
+		unmarshaller.setTypeResolver(new DefinedTypeResolver() {
+			@Override
+			public DefinedType resolve(String id) {
+				for (Iterator<Element<?>> iterator = holder[0].iterator(); iterator.hasNext(); iterator.next()) {
+					visited[0]++;
+				}
+				return null;
+			}
+		});
+		String definition = DEFINITION.substring(0, DEFINITION.lastIndexOf("</structure>")) + "<structure name=\"other\" definition=\"be.nabu.other\"/></structure>";
+		holder[0] = unmarshaller.unmarshal(new ByteArrayInputStream(definition.getBytes("UTF-8")));
+		assertNotNull(holder[0].get("name"));
+		// name and employees were already added when the reference was resolved
+		assertEquals(2, visited[0]);
+		assertTrue(((LazyDefinedStructure) holder[0]).isMaterialized());
+	}
+	
+	@Test
+	public void everyAccessorMaterializes() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setLazy(true);
+		
+		LazyDefinedStructure type = (LazyDefinedStructure) unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		assertFalse(type.isMaterialized());
+		assertEquals("company", ValueUtils.getValue(NameProperty.getInstance(), type.getProperties()));
+		assertTrue(type.isMaterialized());
+		
+		type = (LazyDefinedStructure) unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		assertFalse(type.isMaterialized());
+		assertNull(type.getSuperType());
+		assertTrue(type.isMaterialized());
+		
+		type = (LazyDefinedStructure) unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		assertFalse(type.isMaterialized());
+		type.getGroups();
+		assertTrue(type.isMaterialized());
+		assertNotNull(type.get("employees"));
+	}
+	
+	private String marshal(ComplexType type) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new XMLDefinitionMarshaller().marshal(output, type);
+		return new String(output.toByteArray(), "UTF-8");
+	}
+}
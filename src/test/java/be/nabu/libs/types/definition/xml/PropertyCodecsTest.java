@@ -0,0 +1,100 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import be.nabu.libs.converter.ConverterFactory;
+import be.nabu.libs.converter.api.Converter;
+import be.nabu.libs.property.api.Property;
+
+import be.nabu.libs.types.base.StringMapCollectionHandlerProvider;
+import be.nabu.libs.types.properties.CollectionHandlerProviderProperty;
+import be.nabu.libs.types.properties.EnumerationProperty;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.properties.MinOccursProperty;
+
+public class PropertyCodecsTest {
+
+	@Test
+	public void codecsHandleTheSpecialCases() throws Exception {
+		PropertyCodecs codecs = PropertyCodecs.getInstance();
+		assertSame(codecs.getCodec(new MinOccursProperty()), codecs.getCodec(new MinOccursProperty()));
+		assertSame(PropertyCodecs.NOT_WRITTEN, codecs.getCodec(new EnumerationProperty()));
+		
+		PropertyCodec maxOccurs = codecs.getCodec(MaxOccursProperty.getInstance());
+		assertEquals("unbounded", maxOccurs.format(0));
+		assertEquals("5", maxOccurs.format(5));
+		assertEquals(Integer.valueOf(0), maxOccurs.parse("unbounded"));
+		assertEquals(Integer.valueOf(5), maxOccurs.parse("5"));
+		
+		assertEquals(Integer.valueOf(1), codecs.getCodec(new MinOccursProperty()).parse("1"));
+		
+		PropertyCodec collectionHandler = codecs.getCodec(CollectionHandlerProviderProperty.getInstance());
+		assertEquals("stringMap", collectionHandler.format(new StringMapCollectionHandlerProvider()));
+		assertTrue(collectionHandler.parse("stringMap") instanceof StringMapCollectionHandlerProvider);
+	}
+	
+	@Test
+	public void enumsAreFormattedLikeTheConverter() throws Exception {
+		Converter converter = ConverterFactory.getInstance().getConverter();
+		PropertyCodec codec = PropertyCodecs.getInstance().getCodec(newProperty("timeUnit", TimeUnit.class));
+		for (TimeUnit unit : TimeUnit.values()) {
+			// the codec is asked twice as the second time comes from its cache
+			assertEquals(converter.convert(unit, String.class), codec.format(unit));
+			assertEquals(converter.convert(unit, String.class), codec.format(unit));
+			String formatted = codec.format(unit);
+			assertEquals(converter.convert(formatted, TimeUnit.class), codec.parse(formatted));
+			assertEquals(converter.convert(formatted, TimeUnit.class), codec.parse(formatted));
+		}
+	}
+	
+	private static Property<?> newProperty(final String name, final Class<?> valueClass) {
+		return (Property<?>) Proxy.newProxyInstance(Property.class.getClassLoader(), new Class<?> [] { Property.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getName")) {
+					return name;
+				}
+				else if (method.getName().equals("getValueClass")) {
+					return valueClass;
+				}
+				else if (method.getName().equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				}
+				else if (method.getName().equals("equals")) {
+					return proxy == args[0];
+				}
+				else if (method.getName().equals("toString")) {
+					return name;
+				}
+				return null;
+			}
+		});
+	}
+}
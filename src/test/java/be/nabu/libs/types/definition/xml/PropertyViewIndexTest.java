@@ -0,0 +1,55 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.properties.CommentProperty;
+import be.nabu.libs.types.properties.MinOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class PropertyViewIndexTest {
+
+	@Test
+	public void viewIsRebuiltWhenThePropertiesChange() {
+		PropertyViewIndex index = new PropertyViewIndex();
+		Structure structure = new Structure();
+		structure.setProperty(new ValueImpl<String>(CommentProperty.getInstance(), "first"));
+		
+		PropertyViewIndex.PropertyView view = index.getView(structure);
+		assertSame(view, index.getView(structure));
+		assertTrue(view.contains(new ValueImpl<String>(CommentProperty.getInstance(), "first")));
+		assertFalse(view.contains(new ValueImpl<String>(CommentProperty.getInstance(), "second")));
+		// properties that the type does not have are not found
+		assertNull(view.get(new ValueImpl<Integer>(new MinOccursProperty(), 0)));
+		
+		structure.setProperty(new ValueImpl<String>(CommentProperty.getInstance(), "second"));
+		PropertyViewIndex.PropertyView updated = index.getView(structure);
+		assertNotSame(view, updated);
+		assertTrue(updated.contains(new ValueImpl<String>(CommentProperty.getInstance(), "second")));
+		assertFalse(updated.contains(new ValueImpl<String>(CommentProperty.getInstance(), "first")));
+	}
+}
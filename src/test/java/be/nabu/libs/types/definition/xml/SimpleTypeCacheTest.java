@@ -0,0 +1,105 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.SimpleTypeWrapper;
+
+public class SimpleTypeCacheTest {
+
+	@Test
+	public void entriesAreKeptPerClassLoader() throws Exception {
+		SimpleTypeWrapper wrapper = SimpleTypeWrapperFactory.getInstance().getWrapper();
+		SimpleTypeCache cache = new SimpleTypeCache();
+		CountingClassLoader first = new CountingClassLoader(), second = new CountingClassLoader();
+		
+		assertNotNull(cache.resolve(wrapper, first, "java.lang.String"));
+		assertSame(cache.resolve(wrapper, first, "java.lang.String"), cache.resolve(wrapper, first, "java.lang.String"));
+		
+		// unknown names are remembered as well
+		resolveUnknown(cache, wrapper, first);
+		resolveUnknown(cache, wrapper, first);
+		assertEquals(1, first.unknown.get());
+		
+		// another classloader has its own entries
+		resolveUnknown(cache, wrapper, second);
+		assertEquals(1, second.unknown.get());
+		
+		// once cleared, the name is resolved again
+		cache.clear(first);
+		resolveUnknown(cache, wrapper, first);
+		resolveUnknown(cache, wrapper, second);
+		assertEquals(2, first.unknown.get());
+		assertEquals(1, second.unknown.get());
+	}
+	
+	@Test
+	public void entriesAreDroppedWithTheClassLoader() throws Exception {
+		SimpleTypeWrapper wrapper = SimpleTypeWrapperFactory.getInstance().getWrapper();
+		SimpleTypeCache cache = new SimpleTypeCache();
+		CountingClassLoader classLoader = new CountingClassLoader();
+		assertNotNull(cache.resolve(wrapper, classLoader, "java.lang.String"));
+		resolveUnknown(cache, wrapper, classLoader);
+		assertEquals(1, cache.getSize());
+		
+		// no memory pressure is needed, a regular collection suffices
+		classLoader = null;
+		for (int i = 0; i < 50 && cache.getSize() > 0; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertEquals(0, cache.getSize());
+	}
+	
+	private static void resolveUnknown(SimpleTypeCache cache, SimpleTypeWrapper wrapper, ClassLoader classLoader) {
+		try {
+			cache.resolve(wrapper, classLoader, CountingClassLoader.UNKNOWN);
+			fail("The class does not exist");
+		}
+		catch (ClassNotFoundException e) {
+			// expected
+		}
+	}
+	
+	private static class CountingClassLoader extends ClassLoader {
+		private static final String UNKNOWN = "be.nabu.libs.types.definition.xml.DoesNotExist";
+		private AtomicInteger unknown = new AtomicInteger();
+		
+		public CountingClassLoader() {
+			super(SimpleTypeCacheTest.class.getClassLoader());
+		}
+		
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (UNKNOWN.equals(name)) {
+				unknown.incrementAndGet();
+			}
+			return super.loadClass(name, resolve);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.api.ComplexType;
+
+/**
+ * The nesting depth should not be limited by the thread stack, how the time grows with the amount of fields is measured by the scaling benchmark
+ */
+public class UnmarshalScalingTest {
+
+	@Test
+	public void deepNestingDoesNotOverflow() throws Exception {
+		int depth = 10000;
+		StringBuilder builder = new StringBuilder("<structure name=\"root\">");
+		for (int i = 0; i < depth; i++) {
+			builder.append("<structure name=\"level" + i + "\">");
+		}
+		builder.append("<field name=\"leaf\" type=\"java.lang.String\"/>");
+		for (int i = 0; i <= depth; i++) {
+			builder.append("</structure>");
+		}
+		byte [] content = builder.toString().getBytes("UTF-8");
+		for (boolean streaming : new boolean [] { false, true }) {
+			XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+			unmarshaller.setStreaming(streaming);
+			ComplexType current = unmarshaller.unmarshal(new ByteArrayInputStream(content));
+			for (int i = 0; i < depth; i++) {
+				assertNotNull("Missing level " + i, current.get("level" + i));
+				current = (ComplexType) current.get("level" + i).getType();
+			}
+			assertNotNull(current.get("leaf"));
+		}
+	}
+}
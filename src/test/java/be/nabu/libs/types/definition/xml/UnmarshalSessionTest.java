@@ -0,0 +1,126 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.DefinedType;
+import be.nabu.libs.types.api.DefinedTypeResolver;
+
+public class UnmarshalSessionTest {
+
+	@Test
+	public void cyclesAreLoadedInOnePass() throws Exception {
+		final Map<String, String> definitions = new LinkedHashMap<String, String>();
+		definitions.put("company", "<structure name=\"company\"><field name=\"name\" type=\"java.lang.String\"/><structure name=\"employees\" definition=\"employee\" maxOccurs=\"unbounded\"/></structure>");
+		definitions.put("employee", "<structure name=\"employee\"><structure name=\"employer\" definition=\"company\"/><structure name=\"address\" definition=\"address\"/></structure>");
+		definitions.put("address", "<structure name=\"address\"><field name=\"street\" type=\"java.lang.String\"/><structure name=\"resident\" definition=\"employee\"/></structure>");
+		
+		Map<String, XMLDefinitionBulkLoader.DefinitionSource> sources = new LinkedHashMap<String, XMLDefinitionBulkLoader.DefinitionSource>();
+		final AtomicInteger opened = new AtomicInteger();
+		for (final Map.Entry<String, String> entry : definitions.entrySet()) {
+			sources.put(entry.getKey(), new XMLDefinitionBulkLoader.DefinitionSource() {
+				@Override
+				public InputStream open() throws IOException {
+					opened.incrementAndGet();
+					return new ByteArrayInputStream(entry.getValue().getBytes("UTF-8"));
+				}
+			});
+		}
+		final AtomicInteger resolved = new AtomicInteger();
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setTypeResolver(new DefinedTypeResolver() {
+			@Override
+			public DefinedType resolve(String id) {
+				resolved.incrementAndGet();
+				return null;
+			}
+		});
+		
+		UnmarshalSession session = new UnmarshalSession(unmarshaller, sources);
+		ComplexType company = session.load("company");
+		ComplexType employee = (ComplexType) company.get("employees").getType();
+		ComplexType address = (ComplexType) employee.get("address").getType();
+		
+		assertSame(company, employee.get("employer").getType());
+		assertSame(employee, address.get("resident").getType());
+		assertNotNull(address.get("street"));
+		// every definition is read exactly once and the resolver is never consulted
+		assertEquals(3, opened.get());
+		assertEquals(0, resolved.get());
+		assertTrue(session.getFailures().isEmpty());
+		
+		// loading again is served from the table
+		assertSame(company, session.load("company"));
+		assertEquals(3, session.loadAll().size());
+		assertEquals(3, opened.get());
+	}
+	
+	@Test
+	public void referencesToFailedDefinitionsFailAsWell() throws Exception {
+		final Map<String, String> definitions = new LinkedHashMap<String, String>();
+		definitions.put("department", "<structure name=\"department\"><structure name=\"company\" definition=\"company\"/></structure>");
+		definitions.put("company", "<structure name=\"company\"><structure name=\"employees\" definition=\"employee\" maxOccurs=\"unbounded\"/></structure>");
+		definitions.put("employee", "<structure name=\"employee\"><field name=\"name\" type=\"java.lang.String\"/></structure>");
+		definitions.put("product", "<structure name=\"product\"><field name=\"name\" type=\"java.lang.String\"/></structure>");
+		
+		Map<String, XMLDefinitionBulkLoader.DefinitionSource> sources = new LinkedHashMap<String, XMLDefinitionBulkLoader.DefinitionSource>();
+		for (final Map.Entry<String, String> entry : definitions.entrySet()) {
+			sources.put(entry.getKey(), new XMLDefinitionBulkLoader.DefinitionSource() {
+				@Override
+				public InputStream open() throws IOException {
+					if (entry.getKey().equals("employee")) {
+						throw new IOException("Can not read employee");
+					}
+					return new ByteArrayInputStream(entry.getValue().getBytes("UTF-8"));
+				}
+			});
+		}
+		UnmarshalSession session = new UnmarshalSession(new XMLDefinitionUnmarshaller(), sources);
+		try {
+			session.load("department");
+			fail("The department indirectly references a definition that could not be loaded");
+		}
+		catch (ParseException e) {
+			// expected
+		}
+		assertTrue(session.getFailures().get("employee") instanceof IOException);
+		assertTrue(session.getFailures().get("company") instanceof ParseException);
+		assertEquals(Collections.singleton("product"), session.loadAll().keySet());
+		assertEquals(new LinkedHashSet<String>(Arrays.asList("department", "company", "employee")), session.getFailures().keySet());
+	}
+}
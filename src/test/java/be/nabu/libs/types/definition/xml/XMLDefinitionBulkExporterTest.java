@@ -0,0 +1,216 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.ComplexType;
+
+public class XMLDefinitionBulkExporterTest {
+
+	@Test
+	public void exportContinuesAfterFailures() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		Map<String, ComplexType> definitions = new LinkedHashMap<String, ComplexType>();
+		for (int i = 0; i < 50; i++) {
+			definitions.put("definition" + i, unmarshaller.unmarshal(new ByteArrayInputStream(("<structure name=\"definition" + i + "\"><field name=\"name\" type=\"java.lang.String\"/></structure>").getBytes("UTF-8"))));
+		}
+		final Map<String, ByteArrayOutputStream> outputs = new ConcurrentHashMap<String, ByteArrayOutputStream>();
+		XMLDefinitionBulkExporter exporter = new XMLDefinitionBulkExporter(new XMLDefinitionMarshaller());
+		exporter.setConcurrency(4);
+		XMLDefinitionBulkExporter.Result<String> result = exporter.export(definitions, new XMLDefinitionBulkExporter.DefinitionTarget<String>() {
+			@Override
+			public OutputStream open(String key) throws IOException {
+				if (key.equals("definition7")) {
+					throw new IOException("Can not write " + key);
+				}
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				outputs.put(key, output);
+				return output;
+			}
+		});
+		assertEquals(1, result.getFailures().size());
+		assertTrue(result.getFailures().containsKey("definition7"));
+		assertEquals(49, result.getExported().size());
+		assertEquals("definition0", result.getExported().get(0));
+		assertTrue(new String(outputs.get("definition42").toByteArray(), "UTF-8").contains("name=\"definition42\""));
+	}
+	
+	@Test
+	public void exportToFiles() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		Path directory = Files.createTempDirectory("definitions");
+		try {
+			Map<Path, ComplexType> definitions = new LinkedHashMap<Path, ComplexType>();
+			for (int i = 0; i < 20; i++) {
+				definitions.put(directory.resolve("nested/definition" + i + ".xml"), unmarshaller.unmarshal(new ByteArrayInputStream(("<structure name=\"definition" + i + "\"/>").getBytes("UTF-8"))));
+			}
+			XMLDefinitionBulkExporter exporter = new XMLDefinitionBulkExporter(new XMLDefinitionMarshaller());
+			// not a multiple of the amount of files so the last batch is synced at the end
+			exporter.setSyncBatchSize(6);
+			XMLDefinitionBulkExporter.Result<Path> result = exporter.export(definitions);
+			assertTrue(result.getFailures().isEmpty());
+			assertEquals(20, result.getExported().size());
+			for (Map.Entry<Path, ComplexType> entry : definitions.entrySet()) {
+				ByteArrayOutputStream expected = new ByteArrayOutputStream();
+				new XMLDefinitionMarshaller().marshal(expected, entry.getValue());
+				assertEquals(new String(expected.toByteArray(), "UTF-8"), new String(Files.readAllBytes(entry.getKey()), "UTF-8"));
+			}
+		}
+		finally {
+			try (Stream<Path> paths = Files.walk(directory)) {
+				for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void failedExportsLeaveExistingFilesIntact() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		final ComplexType broken = unmarshaller.unmarshal(new ByteArrayInputStream("<structure name=\"broken\"/>".getBytes("UTF-8")));
+		// fails halfway through the definition
+		XMLDefinitionMarshaller marshaller = new XMLDefinitionMarshaller() {
+			@Override
+			public void marshal(OutputStream output, ComplexType type, Value<?>...values) throws IOException {
+				if (type == broken) {
+					output.write("<structure".getBytes("UTF-8"));
+					throw new IOException("Marshalling failed");
+				}
+				super.marshal(output, type, values);
+			}
+		};
+		Path directory = Files.createTempDirectory("definitions");
+		try {
+			Path brokenFile = directory.resolve("broken.xml"), validFile = directory.resolve("valid.xml");
+			Files.write(brokenFile, "<structure name=\"original\"/>".getBytes("UTF-8"));
+			Map<Path, ComplexType> definitions = new LinkedHashMap<Path, ComplexType>();
+			definitions.put(brokenFile, broken);
+			definitions.put(validFile, unmarshaller.unmarshal(new ByteArrayInputStream("<structure name=\"valid\"/>".getBytes("UTF-8"))));
+			
+			XMLDefinitionBulkExporter.Result<Path> result = new XMLDefinitionBulkExporter(marshaller).export(definitions);
+			assertEquals(1, result.getFailures().size());
+			assertTrue(result.getFailures().containsKey(brokenFile));
+			assertEquals("<structure name=\"original\"/>", new String(Files.readAllBytes(brokenFile), "UTF-8"));
+			assertTrue(new String(Files.readAllBytes(validFile), "UTF-8").contains("name=\"valid\""));
+			// no temporary files are left behind
+			assertEquals(2, directory.toFile().list().length);
+		}
+		finally {
+			try (Stream<Path> paths = Files.walk(directory)) {
+				for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void interruptedExportsLeaveNoFilesBehind() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		final ComplexType slow = unmarshaller.unmarshal(new ByteArrayInputStream("<structure name=\"slow\"/>".getBytes("UTF-8")));
+		final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+		final AtomicBoolean finished = new AtomicBoolean();
+		XMLDefinitionMarshaller marshaller = new XMLDefinitionMarshaller() {
+			@Override
+			public void marshal(OutputStream output, ComplexType type, Value<?>...values) throws IOException {
+				if (type == slow) {
+					started.countDown();
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+				super.marshal(output, type, values);
+				if (type == slow) {
+					finished.set(true);
+				}
+			}
+		};
+		final Path directory = Files.createTempDirectory("definitions");
+		try {
+			final Map<Path, ComplexType> definitions = new LinkedHashMap<Path, ComplexType>();
+			definitions.put(directory.resolve("slow.xml"), slow);
+			for (int i = 0; i < 10; i++) {
+				definitions.put(directory.resolve("definition" + i + ".xml"), unmarshaller.unmarshal(new ByteArrayInputStream(("<structure name=\"definition" + i + "\"/>").getBytes("UTF-8"))));
+			}
+			final XMLDefinitionBulkExporter exporter = new XMLDefinitionBulkExporter(marshaller);
+			exporter.setConcurrency(2);
+			final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+			final AtomicBoolean finishedBeforeReturn = new AtomicBoolean();
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						exporter.export(definitions);
+					}
+					catch (Exception e) {
+						exception.set(e);
+					}
+					finishedBeforeReturn.set(finished.get());
+				}
+			});
+			thread.start();
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			thread.interrupt();
+			// the export has to wait for the definition that is in flight
+			Thread.sleep(100);
+			assertFalse(finished.get());
+			release.countDown();
+			thread.join(10000);
+			
+			assertTrue(exception.get() instanceof InterruptedException);
+			assertTrue(finishedBeforeReturn.get());
+			// nothing was moved in place and no temporary files are left behind
+			assertEquals(0, directory.toFile().list().length);
+		}
+		finally {
+			release.countDown();
+			try (Stream<Path> paths = Files.walk(directory)) {
+				for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import be.nabu.libs.types.api.ComplexType;
+
+public class XMLDefinitionBulkLoaderTest {
+
+	@Test
+	public void componentsAreInTopologicalOrder() {
+		Map<String, Set<String>> references = new LinkedHashMap<String, Set<String>>();
+		references.put("order", references("customer", "product"));
+		references.put("customer", references("address"));
+		references.put("address", references("customer"));
+		references.put("product", references());
+		
+		List<List<String>> components = XMLDefinitionBulkLoader.getComponents(references);
+		assertEquals(3, components.size());
+		assertEquals(new LinkedHashSet<String>(Arrays.asList("customer", "address")), new LinkedHashSet<String>(components.get(0)));
+		assertEquals(Arrays.asList("product"), components.get(1));
+		assertEquals(Arrays.asList("order"), components.get(2));
+	}
+	
+	@Test
+	public void cyclesAreLoadedAsOneUnit() throws Exception {
+		Map<String, String> definitions = new LinkedHashMap<String, String>();
+		definitions.put("company", "<structure name=\"company\"><structure name=\"employees\" definition=\"employee\" maxOccurs=\"unbounded\"/></structure>");
+		definitions.put("employee", "<structure name=\"employee\"><field name=\"name\" type=\"java.lang.String\"/><structure name=\"employer\" definition=\"company\"/></structure>");
+		definitions.put("department", "<structure name=\"department\" superType=\"company\"/>");
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			XMLDefinitionBulkLoader.Result result = new XMLDefinitionBulkLoader(new XMLDefinitionUnmarshaller(), executor).load(sources(definitions));
+			assertTrue(result.getFailures().isEmpty());
+			ComplexType company = result.getTypes().get("company");
+			ComplexType employee = result.getTypes().get("employee");
+			assertSame(employee, company.get("employees").getType());
+			assertSame(company, employee.get("employer").getType());
+			assertSame(company, result.getTypes().get("department").getSuperType());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void failuresAreReportedForDependentsAsWell() throws Exception {
+		Map<String, String> definitions = new LinkedHashMap<String, String>();
+		definitions.put("broken", "<structure name=\"broken\"");
+		definitions.put("user", "<structure name=\"user\"><structure name=\"broken\" definition=\"broken\"/></structure>");
+		definitions.put("flaky", "<structure name=\"flaky\"><structure name=\"partner\" definition=\"partner\"/></structure>");
+		definitions.put("partner", "<structure name=\"partner\"><structure name=\"flaky\" definition=\"flaky\"/></structure>");
+		definitions.put("order", "<structure name=\"order\"><structure name=\"partner\" definition=\"partner\"/></structure>");
+		definitions.put("product", "<structure name=\"product\"><field name=\"name\" type=\"java.lang.String\"/></structure>");
+		
+		Map<String, XMLDefinitionBulkLoader.DefinitionSource> sources = sources(definitions);
+		// the scan succeeds but the actual unmarshalling does not
+		final AtomicInteger opened = new AtomicInteger();
+		sources.put("flaky", new XMLDefinitionBulkLoader.DefinitionSource() {
+			@Override
+			public InputStream open() throws IOException {
+				if (opened.incrementAndGet() > 1) {
+					throw new IOException("Gone");
+				}
+				return new ByteArrayInputStream("<structure name=\"flaky\"><structure name=\"partner\" definition=\"partner\"/></structure>".getBytes("UTF-8"));
+			}
+		});
+		
+		XMLDefinitionBulkLoader.Result result = new XMLDefinitionBulkLoader(new XMLDefinitionUnmarshaller()).load(sources);
+		assertEquals(Collections.singleton("product"), result.getTypes().keySet());
+		assertEquals(new LinkedHashSet<String>(Arrays.asList("broken", "user", "flaky", "partner", "order")), result.getFailures().keySet());
+		assertTrue(result.getFailures().get("flaky") instanceof IOException);
+		assertTrue(result.getFailures().get("user") instanceof ParseException);
+		assertTrue(result.getFailures().get("partner") instanceof ParseException);
+		assertTrue(result.getFailures().get("order") instanceof ParseException);
+	}
+	
+	@Test(timeout = 10000)
+	public void rejectedTasksDoNotHang() throws Exception {
+		Map<String, String> definitions = new LinkedHashMap<String, String>();
+		definitions.put("address", "<structure name=\"address\"><field name=\"street\" type=\"java.lang.String\"/></structure>");
+		definitions.put("customer", "<structure name=\"customer\"><structure name=\"address\" definition=\"address\"/></structure>");
+		definitions.put("order", "<structure name=\"order\"><structure name=\"customer\" definition=\"customer\"/></structure>");
+		
+		// only accepts the first task, like an executor that is shut down while loading
+		Executor executor = new Executor() {
+			private AtomicInteger executed = new AtomicInteger();
+			@Override
+			public void execute(Runnable command) {
+				if (executed.incrementAndGet() > 1) {
+					throw new RejectedExecutionException("Shut down");
+				}
+				command.run();
+			}
+		};
+		XMLDefinitionBulkLoader.Result result = new XMLDefinitionBulkLoader(new XMLDefinitionUnmarshaller(), executor).load(sources(definitions));
+		assertEquals(Collections.singleton("address"), result.getTypes().keySet());
+		assertTrue(result.getFailures().get("customer") instanceof RejectedExecutionException);
+		assertTrue(result.getFailures().containsKey("order"));
+	}
+	
+	private static Set<String> references(String...ids) {
+		return new LinkedHashSet<String>(Arrays.asList(ids));
+	}
+	
+	private static Map<String, XMLDefinitionBulkLoader.DefinitionSource> sources(Map<String, String> definitions) {
+		Map<String, XMLDefinitionBulkLoader.DefinitionSource> sources = new LinkedHashMap<String, XMLDefinitionBulkLoader.DefinitionSource>();
+		for (final Map.Entry<String, String> entry : definitions.entrySet()) {
+			sources.put(entry.getKey(), new XMLDefinitionBulkLoader.DefinitionSource() {
+				@Override
+				public InputStream open() throws IOException {
+					return new ByteArrayInputStream(entry.getValue().getBytes("UTF-8"));
+				}
+			});
+		}
+		return sources;
+	}
+}
@@ -23,6 +23,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 
@@ -32,9 +34,16 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import be.nabu.libs.property.ValueUtils;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.SimpleTypeWrapper;
+import be.nabu.libs.types.base.AttributeImpl;
+import be.nabu.libs.types.base.ComplexElementImpl;
 import be.nabu.libs.types.base.SimpleElementImpl;
 import be.nabu.libs.types.base.ValueImpl;
 import be.nabu.libs.types.properties.CommentProperty;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.properties.MinOccursProperty;
 import be.nabu.libs.types.properties.PatternProperty;
 import be.nabu.libs.types.simple.UUID;
 import be.nabu.libs.types.properties.NameProperty;
@@ -80,6 +89,65 @@ public class XMLDefinitionMarshallerTest {
 		assertEquals(overridePattern, overriddenUuid.getAttribute("pattern"));
 	}
 
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void streamingMarshalMatchesDocumentMarshal() throws Exception {
+		SimpleTypeWrapper wrapper = SimpleTypeWrapperFactory.getInstance().getWrapper();
+		Structure structure = new Structure();
+		structure.setName("company");
+		structure.add(new SimpleElementImpl("name", wrapper.wrap(String.class), structure, new ValueImpl<Integer>(new MinOccursProperty(), 0)));
+		structure.add(new AttributeImpl("id", wrapper.wrap(String.class), structure));
+		structure.add(new AttributeImpl("version", wrapper.wrap(Integer.class), structure));
+		structure.add(new SimpleElementImpl("remark", wrapper.wrap(String.class), structure,
+			new ValueImpl<String>(CommentProperty.getInstance(), "contains \"quotes\" & <brackets>")));
+		Structure employee = new Structure();
+		employee.setName("employee");
+		employee.add(new SimpleElementImpl("firstName", wrapper.wrap(String.class), employee));
+		employee.add(new AttributeImpl("number", wrapper.wrap(Long.class), employee));
+		structure.add(new ComplexElementImpl("employees", employee, structure, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+
+		for (boolean prettyPrint : new boolean[] { true, false }) {
+			XMLDefinitionMarshaller marshaller = new XMLDefinitionMarshaller();
+			marshaller.setPrettyPrint(prettyPrint);
+			ByteArrayOutputStream document = new ByteArrayOutputStream();
+			marshaller.marshal(document, structure);
+			marshaller.setStreaming(true);
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			marshaller.marshal(stream, structure);
+			assertEquals(new String(document.toByteArray(), "UTF-8"), new String(stream.toByteArray(), "UTF-8"));
+		}
+	}
+
+	@Test
+	public void channelAndBufferOutputMatchStreamOutput() throws Exception {
+		String definition = "<structure name=\"company\">\n\t<field name=\"name\" type=\"java.lang.String\"/>\n\t<structure name=\"address\">\n\t\t<field name=\"street\" type=\"java.lang.String\"/>\n\t</structure>\n</structure>";
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		ComplexType type = unmarshaller.unmarshal(ByteBuffer.wrap(definition.getBytes("UTF-8")));
+		XMLDefinitionMarshaller marshaller = new XMLDefinitionMarshaller();
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		marshaller.marshal(expected, type);
+		assertTrue(new String(expected.toByteArray(), "UTF-8").contains("\t\t<field name=\"street\""));
+		
+		ByteArrayOutputStream channel = new ByteArrayOutputStream();
+		marshaller.marshal(Channels.newChannel(channel), type);
+		assertEquals(new String(expected.toByteArray(), "UTF-8"), new String(channel.toByteArray(), "UTF-8"));
+		
+		ByteBuffer buffer = ByteBuffer.allocateDirect(expected.size());
+		marshaller.marshal(buffer, type);
+		assertFalse(buffer.hasRemaining());
+		buffer.flip();
+		
+		// and read it back from both
+		ComplexType fromBuffer = unmarshaller.unmarshal(buffer);
+		assertEquals(0, buffer.position());
+		ComplexType fromChannel = unmarshaller.unmarshal(Channels.newChannel(new ByteArrayInputStream(channel.toByteArray())));
+		ByteArrayOutputStream first = new ByteArrayOutputStream(), second = new ByteArrayOutputStream();
+		marshaller.marshal(first, fromBuffer);
+		marshaller.marshal(second, fromChannel);
+		assertEquals(new String(expected.toByteArray(), "UTF-8"), new String(first.toByteArray(), "UTF-8"));
+		assertEquals(new String(expected.toByteArray(), "UTF-8"), new String(second.toByteArray(), "UTF-8"));
+	}
+	
 	private Element getField(Document document, String name) {
 		NodeList fields = document.getElementsByTagName("field");
 		for (int i = 0; i < fields.getLength(); i++) {
@@ -0,0 +1,220 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import be.nabu.libs.property.ValueUtils;
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.properties.MinOccursProperty;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.properties.EnumerationProperty;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.properties.NameProperty;
+import be.nabu.libs.types.structure.DefinedStructure;
+
+public class XMLDefinitionUnmarshallerTest {
+
+	private static final String DEFINITION = "<structure name=\"company\" namespace=\"be.nabu.test\">\n"
+		+ "\t<attribute name=\"id\" type=\"java.lang.String\"/>\n"
+		+ "\t<field name=\"name\" type=\"java.lang.String\" minOccurs=\"0\"/>\n"
+		+ "\t<field name=\"currency\" type=\"java.lang.String\">\n"
+		+ "\t\t<enumeration>EUR</enumeration>\n"
+		+ "\t\t<enumeration>USD</enumeration>\n"
+		+ "\t</field>\n"
+		+ "\t<structure name=\"employees\" maxOccurs=\"unbounded\">\n"
+		+ "\t\t<field name=\"firstName\" type=\"java.lang.String\"/>\n"
+		+ "\t\t<structure name=\"address\">\n"
+		+ "\t\t\t<field name=\"street\" type=\"java.lang.String\"/>\n"
+		+ "\t\t</structure>\n"
+		+ "\t</structure>\n"
+		+ "</structure>";
+
+	@Test
+	public void streamingUnmarshalMatchesDocumentUnmarshal() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		ComplexType fromDocument = unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		unmarshaller.setStreaming(true);
+		ComplexType fromStream = unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+
+		assertNotNull(fromStream.get("employees"));
+		assertEquals(Integer.valueOf(0), ValueUtils.getValue(MaxOccursProperty.getInstance(), fromStream.get("employees").getProperties()));
+		assertEquals(2, ((List<?>) ValueUtils.getValue(new EnumerationProperty(), fromStream.get("currency").getProperties())).size());
+		assertEquals(marshal(fromDocument), marshal(fromStream));
+	}
+
+	@Test
+	public void internedUnmarshalSharesValues() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setInterner(new DefinitionInterner());
+		ComplexType first = unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		ComplexType second = unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		
+		assertSame(getName(first.get("currency").getProperties()), getName(second.get("currency").getProperties()));
+		assertTrue(unmarshaller.getInterner().getHits() > 0);
+		assertEquals(marshal(first), marshal(second));
+	}
+	
+	@Test
+	public void identicalDeclarationsShareProperties() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setSharedPropertiesPool(new SharedPropertiesPool());
+		ComplexType first = unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")));
+		ComplexType second = unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.replace("currency", "otherCurrency").getBytes("UTF-8")));
+		
+		SharedSimpleElement<?> currency = (SharedSimpleElement<?>) first.get("currency");
+		SharedSimpleElement<?> otherCurrency = (SharedSimpleElement<?>) second.get("otherCurrency");
+		assertEquals("otherCurrency", otherCurrency.getName());
+		assertEquals(2, ((List<?>) ValueUtils.getValue(new EnumerationProperty(), otherCurrency.getProperties())).size());
+		// the id attribute, the optional name, the currency enumeration and the plain string fields
+		assertEquals(4, unmarshaller.getSharedPropertiesPool().getSize());
+		
+		// modifying one of them should not affect the other
+		otherCurrency.setProperty(new ValueImpl<Integer>(new MinOccursProperty(), 0));
+		assertFalse(otherCurrency.isShared());
+		assertTrue(currency.isShared());
+		assertEquals(null, ValueUtils.getValue(new MinOccursProperty(), currency.getProperties()));
+		assertEquals(2, ((List<?>) ValueUtils.getValue(new EnumerationProperty(), otherCurrency.getProperties())).size());
+		assertEquals(Integer.valueOf(0), ValueUtils.getValue(new MinOccursProperty(), otherCurrency.getProperties()));
+	}
+	
+	@Test
+	public void listenerReceivesMetrics() throws Exception {
+		final List<DefinitionMetrics> unmarshalled = new ArrayList<DefinitionMetrics>(), marshalled = new ArrayList<DefinitionMetrics>();
+		DefinitionListener listener = new DefinitionListener() {
+			@Override
+			public void unmarshalled(DefinitionMetrics metrics) {
+				unmarshalled.add(metrics);
+			}
+			@Override
+			public void marshalled(DefinitionMetrics metrics) {
+				marshalled.add(metrics);
+			}
+		};
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setListener(listener);
+		unmarshaller.setIgnoreUnknown(true);
+		String definition = DEFINITION.substring(0, DEFINITION.lastIndexOf("</structure>")) + "<structure name=\"unknown\" definition=\"be.nabu.unknown\"/></structure>";
+		ComplexType type = unmarshaller.unmarshal(new ByteArrayInputStream(definition.getBytes("UTF-8")));
+		
+		assertEquals(1, unmarshalled.size());
+		DefinitionMetrics metrics = unmarshalled.get(0);
+		assertEquals(definition.getBytes("UTF-8").length, metrics.getBytes());
+		assertEquals(8, metrics.getElements());
+		assertEquals(1, metrics.getResolverMisses());
+		assertEquals(1, metrics.getIgnoredReferences().size());
+		assertTrue(metrics.getTime(DefinitionMetrics.Phase.TOTAL) >= metrics.getTime(DefinitionMetrics.Phase.PARSE));
+		
+		XMLDefinitionMarshaller marshaller = new XMLDefinitionMarshaller();
+		marshaller.setListener(listener);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		marshaller.marshal(output, type);
+		assertEquals(1, marshalled.size());
+		assertEquals(output.size(), marshalled.get(0).getBytes());
+		assertTrue(marshalled.get(0).getElements() > 0);
+	}
+	
+	@Test
+	public void sharedUnmarshallerKeepsCallsApart() throws Exception {
+		final XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setIgnoreUnknown(true);
+		final String expected = marshal(unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8"))));
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < 8; i++) {
+			final String id = "be.nabu.test.company" + i;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int j = 0; j < 50; j++) {
+						// every call references itself and an unknown definition, both are tracked in the context of that call
+						String definition = DEFINITION.substring(0, DEFINITION.lastIndexOf("</structure>"))
+							+ "<structure name=\"parent\" definition=\"" + id + "\"/><structure name=\"unknown\" definition=\"" + id + ".unknown\"/></structure>";
+						UnmarshalContext context = new UnmarshalContext(id);
+						ComplexType type = unmarshaller.unmarshal(new ByteArrayInputStream(definition.getBytes("UTF-8")), context);
+						assertSame(type, context.getRoot());
+						assertSame(type, type.get("parent").getType());
+						assertEquals(1, context.getIgnoredReferences().size());
+						assertEquals(id + ".unknown", context.getIgnoredReferences().get(0));
+						assertEquals(1, context.getDiagnostics().size());
+					}
+					return null;
+				}
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		// the shared instance is still usable for plain calls
+		assertEquals(expected, marshal(unmarshaller.unmarshal(new ByteArrayInputStream(DEFINITION.getBytes("UTF-8")))));
+	}
+	
+	@SuppressWarnings("deprecation")
+	@Test
+	public void protectedEntryPointsKeepTheirState() throws Exception {
+		XMLDefinitionUnmarshaller unmarshaller = new XMLDefinitionUnmarshaller();
+		unmarshaller.setIdToUnmarshal("be.nabu.test.company");
+		unmarshaller.setIgnoreUnknown(true);
+		String definition = DEFINITION.substring(0, DEFINITION.lastIndexOf("</structure>"))
+			+ "<structure name=\"parent\" definition=\"be.nabu.test.company\"/><structure name=\"unknown\" definition=\"be.nabu.unknown\"/></structure>";
+		
+		ComplexType fromDocument = unmarshaller.unmarshal(XMLDefinitionUnmarshaller.toDocument(new ByteArrayInputStream(definition.getBytes("UTF-8"))), new DefinedStructure());
+		assertSame(fromDocument, fromDocument.get("parent").getType());
+		assertEquals(1, unmarshaller.getIgnoredReferences().size());
+		
+		ComplexType fromCursor = unmarshaller.unmarshal(new XMLDefinitionCursor(XMLDefinitionUnmarshaller.toStreamReader(new ByteArrayInputStream(definition.getBytes("UTF-8")))), new DefinedStructure());
+		assertSame(fromCursor, fromCursor.get("parent").getType());
+		assertEquals(1, unmarshaller.getIgnoredReferences().size());
+	}
+	
+	private Value<?> getName(Value<?>...values) {
+		for (Value<?> value : values) {
+			if (NameProperty.getInstance().equals(value.getProperty())) {
+				return value;
+			}
+		}
+		return null;
+	}
+	
+	private String marshal(ComplexType type) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new XMLDefinitionMarshaller().marshal(output, type);
+		return new String(output.toByteArray(), "UTF-8");
+	}
+}
@@ -0,0 +1,77 @@
+/*
+* Copyright (C) 2026 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+
+package be.nabu.libs.types.definition.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+
+import org.junit.Test;
+
+public class XMLFactoryPoolTest {
+
+	@Test
+	public void transformersAreResetBetweenUses() throws Exception {
+		XMLFactoryPool.clear();
+		Transformer transformer = XMLFactoryPool.acquireTransformer();
+		String indent = transformer.getOutputProperty(OutputKeys.INDENT);
+		transformer.setOutputProperty(OutputKeys.INDENT, "yes".equals(indent) ? "no" : "yes");
+		transformer.setParameter("parameter", "value");
+		XMLFactoryPool.release(transformer);
+		
+		Transformer reused = XMLFactoryPool.acquireTransformer();
+		assertSame(transformer, reused);
+		assertEquals(indent, reused.getOutputProperty(OutputKeys.INDENT));
+		assertNull(reused.getParameter("parameter"));
+		XMLFactoryPool.release(reused);
+	}
+	
+	@Test
+	public void buildersAreReusedPerKind() throws Exception {
+		XMLFactoryPool.clear();
+		// reentrant use gets a second instance
+		DocumentBuilder first = XMLFactoryPool.acquireDocumentBuilder(true);
+		DocumentBuilder second = XMLFactoryPool.acquireDocumentBuilder(true);
+		assertNotSame(first, second);
+		assertTrue(first.isNamespaceAware());
+		first.parse(new ByteArrayInputStream("<a xmlns=\"urn:test\"/>".getBytes("UTF-8")));
+		XMLFactoryPool.release(first);
+		XMLFactoryPool.release(second);
+		
+		DocumentBuilder plain = XMLFactoryPool.acquireDocumentBuilder(false);
+		assertFalse(plain.isNamespaceAware());
+		XMLFactoryPool.release(plain);
+		
+		DocumentBuilder reused = XMLFactoryPool.acquireDocumentBuilder(true);
+		assertTrue(reused == first || reused == second);
+		// a builder that was used before parses like a new one
+		assertEquals("urn:test", reused.parse(new ByteArrayInputStream("<a xmlns=\"urn:test\"/>".getBytes("UTF-8"))).getDocumentElement().getNamespaceURI());
+		XMLFactoryPool.release(reused);
+		XMLFactoryPool.clear();
+	}
+}